@@ -20,4 +20,11 @@ public interface MetricNames {
   String SERVICE_OPERATION_SUCCEEDED = "service_operations_succeeded";
   String SERVICE_OPERATION_FAILED = "service_operations_failed";
   String SILENT_ERRORS = "silent_errors";
+  String PRE_AUTHENTICATED_REQUESTS = "pre_authenticated_requests";
+  String PRE_AUTHENTICATED_RESOLVE_DURATION = "pre_authenticated_resolve_duration";
+  String SUPPRESSED_REQUEST_FAILURE_LOGS = "suppressed_request_failure_logs";
+  String REMOTE_OPERATION_RETRIES = "remote_operation_retries";
+  String REMOTE_OPERATION_RETRY_OUTCOMES = "remote_operation_retry_outcomes";
+  String REMOTE_OPERATION_HEDGES = "remote_operation_hedges";
+  String REMOTE_OPERATION_DURATION = "remote_operation_duration";
 }
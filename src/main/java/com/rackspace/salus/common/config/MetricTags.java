@@ -23,4 +23,5 @@ public interface MetricTags {
   String EXCEPTION_METRIC_TAG = "exception";
   String URI_METRIC_TAG = "uri";
   String REASON = "reason";
+  String OUTCOME_METRIC_TAG = "outcome";
 }
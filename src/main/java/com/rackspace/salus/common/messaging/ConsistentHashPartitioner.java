@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.messaging;
+
+import com.google.common.hash.Hashing;
+import com.rackspace.salus.common.util.KeyHashing;
+import com.rackspace.salus.common.util.KeyHashing.Algorithm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+
+/**
+ * A Kafka {@link Partitioner} that maps keyed records to partitions with jump consistent hashing
+ * of the {@link KeyHashing} hash of the key. When the partition count of a topic changes from
+ * N to N+1 only about 1/(N+1) of the keys move to a different partition.
+ * <p>
+ *   Records for the metrics topic are spread across the number of partitions given by
+ *   {@link KafkaTopicProperties#getMetricsTopicPartitions()} so that producers and consumers
+ *   agree on the key-to-partition mapping. All other topics use their current partition count.
+ *   Records without a key are delegated to Kafka's {@link DefaultPartitioner}.
+ * </p>
+ * <p>
+ *   Per-partition record counts are reported as <code>kafka_partitioner_records</code> and the
+ *   ratio of the busiest partition's count to the mean count as <code>kafka_partitioner_skew</code>,
+ *   both tagged by topic. Since Kafka instantiates partitioners itself, the meters are registered
+ *   with {@link Metrics#globalRegistry}, which Spring Boot populates by default.
+ * </p>
+ * <p>
+ *   This is normally configured by enabling <code>salus.kafka.consistent-hash-partitioner.enabled</code>
+ *   in an application using {@link EnableSalusKafkaMessaging}.
+ * </p>
+ */
+@Slf4j
+public class ConsistentHashPartitioner implements Partitioner {
+
+  /**
+   * Producer config entry that names the metrics topic
+   */
+  public static final String METRICS_TOPIC_CONFIG = "salus.partitioner.metrics-topic";
+  /**
+   * Producer config entry that provides the partition count to use for the metrics topic
+   */
+  public static final String METRICS_TOPIC_PARTITIONS_CONFIG = "salus.partitioner.metrics-topic-partitions";
+  /**
+   * Producer config entry that provides the name of the {@link Algorithm} to hash keys with
+   */
+  public static final String KEY_HASHING_ALGORITHM_CONFIG = "salus.partitioner.key-hashing-algorithm";
+
+  private final DefaultPartitioner unkeyedPartitioner = new DefaultPartitioner();
+  private final ConcurrentMap<String, PartitionCounts> partitionCounts = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  private KeyHashing keyHashing = new KeyHashing();
+  private String metricsTopic;
+  private int metricsTopicPartitions;
+  private volatile boolean warnedMetricsTopicPartitions;
+
+  public ConsistentHashPartitioner() {
+    this(Metrics.globalRegistry);
+  }
+
+  ConsistentHashPartitioner(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs) {
+    unkeyedPartitioner.configure(configs);
+
+    final Object algorithm = configs.get(KEY_HASHING_ALGORITHM_CONFIG);
+    if (algorithm != null) {
+      keyHashing = new KeyHashing(Algorithm.valueOf(algorithm.toString()));
+    }
+    final Object topic = configs.get(METRICS_TOPIC_CONFIG);
+    metricsTopic = topic != null ? topic.toString() : null;
+    final Object partitions = configs.get(METRICS_TOPIC_PARTITIONS_CONFIG);
+    metricsTopicPartitions = partitions != null ? Integer.parseInt(partitions.toString()) : 0;
+  }
+
+  @Override
+  public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes,
+                       Cluster cluster) {
+    if (keyBytes == null) {
+      return unkeyedPartitioner.partition(topic, key, null, value, valueBytes, cluster);
+    }
+
+    final int available = cluster.partitionsForTopic(topic).size();
+    int buckets = available;
+    if (metricsTopicPartitions > 0 && topic.equals(metricsTopic)) {
+      if (metricsTopicPartitions > available) {
+        if (!warnedMetricsTopicPartitions) {
+          warnedMetricsTopicPartitions = true;
+          log.warn("Metrics topic={} has only {} partitions, but {} are configured",
+              topic, available, metricsTopicPartitions);
+        }
+      } else {
+        buckets = metricsTopicPartitions;
+      }
+    }
+
+    final long hash = key instanceof String ?
+        keyHashing.hashToLong((String) key) :
+        keyHashing.hashFunction().hashBytes(keyBytes).asLong();
+    final int partition = Hashing.consistentHash(hash, buckets);
+
+    countsFor(topic, buckets).increment(partition);
+    return partition;
+  }
+
+  @Override
+  public void onNewBatch(String topic, Cluster cluster, int prevPartition) {
+    unkeyedPartitioner.onNewBatch(topic, cluster, prevPartition);
+  }
+
+  @Override
+  public void close() {
+    unkeyedPartitioner.close();
+  }
+
+  private PartitionCounts countsFor(String topic, int partitions) {
+    final PartitionCounts counts = partitionCounts.get(topic);
+    if (counts != null && counts.counters.length >= partitions) {
+      return counts;
+    }
+    // first sighting of the topic or its partition count grew
+    return partitionCounts.compute(topic, (t, existing) -> {
+      if (existing == null) {
+        return new PartitionCounts(t, partitions);
+      } else if (existing.counters.length >= partitions) {
+        return existing;
+      } else {
+        meterRegistry.remove(existing.skewGauge);
+        return new PartitionCounts(t, partitions);
+      }
+    });
+  }
+
+  private class PartitionCounts {
+    final Counter[] counters;
+    final Gauge skewGauge;
+
+    PartitionCounts(String topic, int partitions) {
+      // meters are registered up front so that partitioning only needs to increment
+      counters = new Counter[partitions];
+      for (int i = 0; i < partitions; i++) {
+        counters[i] = Counter.builder("kafka_partitioner_records")
+            .tags("topic", topic, "partition", String.valueOf(i))
+            .register(meterRegistry);
+      }
+      skewGauge = Gauge.builder("kafka_partitioner_skew", this, PartitionCounts::skew)
+          .tag("topic", topic)
+          .register(meterRegistry);
+    }
+
+    void increment(int partition) {
+      counters[partition].increment();
+    }
+
+    /**
+     * @return the ratio of the busiest partition's count to the mean count, where 1.0 is a
+     * perfectly even distribution
+     */
+    double skew() {
+      double max = 0;
+      double total = 0;
+      for (Counter counter : counters) {
+        final double count = counter.count();
+        max = Math.max(max, count);
+        total += count;
+      }
+      return total > 0 ? max / (total / counters.length) : 0;
+    }
+  }
+}
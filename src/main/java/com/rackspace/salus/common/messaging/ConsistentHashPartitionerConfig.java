@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.messaging;
+
+import com.rackspace.salus.common.util.KeyHashingProperties;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * When <code>salus.kafka.consistent-hash-partitioner.enabled</code> is set, this configures the
+ * application's Kafka producers to use {@link ConsistentHashPartitioner}, unless the application
+ * has explicitly configured a different <code>partitioner.class</code>.
+ * <p>
+ *   The partitioner is given the metrics topic and partition count from {@link KafkaTopicProperties}
+ *   and the algorithm from {@link KeyHashingProperties}.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty("salus.kafka.consistent-hash-partitioner.enabled")
+@Slf4j
+public class ConsistentHashPartitionerConfig {
+
+  /**
+   * Kafka instantiates the partitioner from the producer properties, so they are amended
+   * before Spring Boot's Kafka auto-configuration builds the producer factory.
+   */
+  @Bean
+  public static BeanPostProcessor consistentHashPartitionerConfigurer(Environment environment) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof KafkaProperties) {
+          configureProducer((KafkaProperties) bean, Binder.get(environment));
+        }
+        return bean;
+      }
+    };
+  }
+
+  private static void configureProducer(KafkaProperties kafkaProperties, Binder binder) {
+    final KafkaTopicProperties topicProperties = binder
+        .bind("salus.kafka.topics", KafkaTopicProperties.class)
+        .orElseGet(KafkaTopicProperties::new);
+    final KeyHashingProperties keyHashingProperties = binder
+        .bind("salus.key-hashing", KeyHashingProperties.class)
+        .orElseGet(KeyHashingProperties::new);
+
+    final Map<String, String> producerProperties = kafkaProperties.getProducer().getProperties();
+    producerProperties.putIfAbsent(
+        ProducerConfig.PARTITIONER_CLASS_CONFIG, ConsistentHashPartitioner.class.getName());
+    producerProperties.put(
+        ConsistentHashPartitioner.METRICS_TOPIC_CONFIG, topicProperties.getMetrics());
+    producerProperties.put(
+        ConsistentHashPartitioner.METRICS_TOPIC_PARTITIONS_CONFIG,
+        String.valueOf(topicProperties.getMetricsTopicPartitions()));
+    producerProperties.put(
+        ConsistentHashPartitioner.KEY_HASHING_ALGORITHM_CONFIG,
+        keyHashingProperties.getAlgorithm().name());
+
+    log.debug("Configured Kafka producers with partitioner={}",
+        producerProperties.get(ProducerConfig.PARTITIONER_CLASS_CONFIG));
+  }
+}
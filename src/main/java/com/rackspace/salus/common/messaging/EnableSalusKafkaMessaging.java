@@ -26,11 +26,15 @@ import org.springframework.context.annotation.Import;
 /**
  * This annotation can be applied to a Spring Boot application class or any other {@link org.springframework.context.annotation.Configuration}
  * component where the application is participating in Kafka messaging between or out of a Salus service.
+ * <p>
+ *   Setting <code>salus.kafka.consistent-hash-partitioner.enabled</code> additionally configures
+ *   producers to partition keyed records with {@link ConsistentHashPartitioner}.
+ * </p>
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 @EnableConfigurationProperties(KafkaTopicProperties.class)
-@Import(KafkaErrorConfig.class)
+@Import({KafkaErrorConfig.class, ConsistentHashPartitionerConfig.class})
 public @interface EnableSalusKafkaMessaging {
 
 }
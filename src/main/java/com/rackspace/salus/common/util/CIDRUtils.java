@@ -25,31 +25,54 @@
 
 package com.rackspace.salus.common.util;
 
-import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * A class that enables to get an IP range from CIDR specification. It supports
  * both IPv4 and IPv6.
+ * <p>
+ *   The range is held as a {@link CidrRange}, so checking addresses that have already been
+ *   parsed into an {@link IpAddress} via {@link #isInRange(IpAddress)} performs no allocation.
+ * </p>
+ * <p>
+ *   By default, only address literals are accepted, which ensures range checks never block
+ *   on DNS. Hostname resolution can be explicitly enabled with
+ *   {@link #CIDRUtils(String, boolean)}.
+ * </p>
  *
  * https://github.com/edazdarevic/CIDRUtils
  */
 public class CIDRUtils {
   private final String cidr;
+  private final boolean resolveHostnames;
 
-  private InetAddress inetAddress;
-  private InetAddress startAddress;
-  private InetAddress endAddress;
+  private final InetAddress inetAddress;
+  private final InetAddress startAddress;
+  private final InetAddress endAddress;
   private final int prefixLength;
+  private final CidrRange range;
 
 
+  /**
+   * @param cidr a CIDR block where the address part is a literal, such as <code>10.0.0.0/8</code>
+   * @throws UnknownHostException if the address part is not an IPv4 or IPv6 literal
+   */
   public CIDRUtils(String cidr) throws UnknownHostException {
+    this(cidr, false);
+  }
+
+  /**
+   * @param cidr a CIDR block
+   * @param resolveHostnames when true, the address part of the CIDR block and addresses given to
+   * {@link #isInRange(String)} may be hostnames, which are resolved via
+   * {@link InetAddress#getByName(String)} and can block on DNS
+   * @throws UnknownHostException if the address part is not a literal or could not be resolved
+   */
+  public CIDRUtils(String cidr, boolean resolveHostnames) throws UnknownHostException {
 
     this.cidr = cidr;
+    this.resolveHostnames = resolveHostnames;
 
     /* split CIDR to address and prefix part */
     if (this.cidr.contains("/")) {
@@ -57,68 +80,20 @@ public class CIDRUtils {
       String addressPart = this.cidr.substring(0, index);
       String networkPart = this.cidr.substring(index + 1);
 
-      inetAddress = InetAddress.getByName(addressPart);
+      final IpAddress address = toIpAddress(addressPart);
+      inetAddress = address.toInetAddress();
       prefixLength = Integer.parseInt(networkPart);
 
-      calculate();
+      range = CidrRange.of(address, prefixLength);
+      startAddress = range.getNetworkAddress().toInetAddress();
+      endAddress = range.getBroadcastAddress().toInetAddress();
     } else {
       throw new IllegalArgumentException("not a valid CIDR format!");
     }
   }
 
-
-  private void calculate() throws UnknownHostException {
-
-    ByteBuffer maskBuffer;
-    int targetSize;
-    if (inetAddress.getAddress().length == 4) {
-      maskBuffer =
-          ByteBuffer
-              .allocate(4)
-              .putInt(-1);
-      targetSize = 4;
-    } else {
-      maskBuffer = ByteBuffer.allocate(16)
-          .putLong(-1L)
-          .putLong(-1L);
-      targetSize = 16;
-    }
-
-    BigInteger mask = (new BigInteger(1, maskBuffer.array())).not().shiftRight(prefixLength);
-
-    ByteBuffer buffer = ByteBuffer.wrap(inetAddress.getAddress());
-    BigInteger ipVal = new BigInteger(1, buffer.array());
-
-    BigInteger startIp = ipVal.and(mask);
-    BigInteger endIp = startIp.add(mask.not());
-
-    byte[] startIpArr = toBytes(startIp.toByteArray(), targetSize);
-    byte[] endIpArr = toBytes(endIp.toByteArray(), targetSize);
-
-    this.startAddress = InetAddress.getByAddress(startIpArr);
-    this.endAddress = InetAddress.getByAddress(endIpArr);
-
-  }
-
-  private byte[] toBytes(byte[] array, int targetSize) {
-    int counter = 0;
-    List<Byte> newArr = new ArrayList<Byte>();
-    while (counter < targetSize && (array.length - 1 - counter >= 0)) {
-      newArr.add(0, array[array.length - 1 - counter]);
-      counter++;
-    }
-
-    int size = newArr.size();
-    for (int i = 0; i < (targetSize - size); i++) {
-
-      newArr.add(0, (byte) 0);
-    }
-
-    byte[] ret = new byte[newArr.size()];
-    for (int i = 0; i < newArr.size(); i++) {
-      ret[i] = newArr.get(i);
-    }
-    return ret;
+  public CidrRange getRange() {
+    return range;
   }
 
   public String getNetworkAddress() {
@@ -130,15 +105,35 @@ public class CIDRUtils {
     return this.endAddress.getHostAddress();
   }
 
+  /**
+   * @throws UnknownHostException if the address is not a literal, or when resolving hostnames,
+   * could not be resolved
+   */
   public boolean isInRange(String ipAddress) throws UnknownHostException {
-    InetAddress address = InetAddress.getByName(ipAddress);
-    BigInteger start = new BigInteger(1, this.startAddress.getAddress());
-    BigInteger end = new BigInteger(1, this.endAddress.getAddress());
-    BigInteger target = new BigInteger(1, address.getAddress());
+    return range.contains(toIpAddress(ipAddress));
+  }
+
+  public boolean isInRange(InetAddress address) {
+    return range.contains(IpAddress.of(address));
+  }
 
-    int st = start.compareTo(target);
-    int te = target.compareTo(end);
+  /**
+   * Checks an address that was parsed ahead of time, which avoids any allocation.
+   */
+  public boolean isInRange(IpAddress address) {
+    return range.contains(address);
+  }
 
-    return (st == -1 || st == 0) && (te == -1 || te == 0);
+  private IpAddress toIpAddress(String address) throws UnknownHostException {
+    final IpAddress parsed = IpAddress.tryParse(address);
+    if (parsed != null) {
+      return parsed;
+    } else if (resolveHostnames) {
+      return IpAddress.of(InetAddress.getByName(address));
+    } else {
+      throw new UnknownHostException(
+          String.format("'%s' is not an IP address literal and hostname resolution is disabled",
+              address));
+    }
   }
 }
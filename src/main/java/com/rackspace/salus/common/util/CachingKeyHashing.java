@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.Arrays;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Memoizes the hex hashes produced by {@link KeyHashing#hash(String...)} in a size-bounded cache
+ * keyed by the given values, which avoids re-hashing the same tenant, resource, monitor, etc
+ * tuples over and over.
+ * <p>
+ *   This is registered as the primary {@link KeyHashing} bean when
+ *   <code>salus.key-hashing.cache.enabled</code> is set to true. The byte-oriented variants
+ *   are not cached since they are already allocation-free.
+ * </p>
+ * <p>
+ *   When a {@link MeterRegistry} is available, the cache's hits, misses, and evictions are
+ *   reported as the <code>key_hashing</code> cache.
+ * </p>
+ */
+@Component
+@Primary
+@ConditionalOnProperty("salus.key-hashing.cache.enabled")
+public class CachingKeyHashing extends KeyHashing {
+
+  private final Cache<Key, String> cache;
+
+  @Autowired
+  public CachingKeyHashing(KeyHashingProperties properties,
+                           Optional<MeterRegistry> meterRegistry) {
+    this(properties.getAlgorithm(), properties.getCache().getMaximumSize());
+    meterRegistry.ifPresent(registry ->
+        GuavaCacheMetrics.monitor(registry, cache, "key_hashing"));
+  }
+
+  public CachingKeyHashing(Algorithm algorithm, long maximumSize) {
+    super(algorithm);
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .recordStats()
+        .build();
+  }
+
+  @Override
+  public String hash(String... values) {
+    final String cached = cache.getIfPresent(new Key(values));
+    if (cached != null) {
+      return cached;
+    }
+
+    final String hashed = super.hash(values);
+    // copy the values since the caller is free to re-use its array
+    cache.put(new Key(values.clone()), hashed);
+    return hashed;
+  }
+
+  /**
+   * Wraps the given values without joining them. Equality is based on the contents of the values.
+   */
+  private static class Key {
+    final String[] values;
+    final int hashCode;
+
+    Key(String[] values) {
+      this.values = values;
+      this.hashCode = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(values, ((Key) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
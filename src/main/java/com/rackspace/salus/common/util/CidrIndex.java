@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable index of many IPv4 and IPv6 CIDR blocks that locates the blocks containing an
+ * address in time proportional to the prefix length rather than the number of blocks.
+ * <p>
+ *   The blocks of each address family are held in a binary trie stored in primitive arrays,
+ *   so lookups perform no allocation. Since an index is never modified after it is built,
+ *   it can be read concurrently without locking. To apply configuration changes, build a new
+ *   index, possibly via {@link #toBuilder()}, and publish it through a volatile field or an
+ *   {@link java.util.concurrent.atomic.AtomicReference}.
+ * </p>
+ * <pre>
+ CidrIndex&lt;String&gt; zones = CidrIndex.&lt;String&gt;builder()
+   .add("10.0.0.0/8", "private-a")
+   .add("10.1.0.0/16", "private-b")
+   .build();
+
+ zones.longestMatch(IpAddress.parse("10.1.2.3")).getPayload(); // private-b
+ * </pre>
+ * @param <T> the type of payload associated with each block
+ */
+public final class CidrIndex<T> {
+
+  private final List<Entry<T>> entries;
+  private final Trie ipv4;
+  private final Trie ipv6;
+
+  private CidrIndex(List<Entry<T>> entries) {
+    this.entries = entries;
+    ipv4 = new Trie(32);
+    ipv6 = new Trie(128);
+    for (int i = 0; i < entries.size(); i++) {
+      final CidrRange range = entries.get(i).getRange();
+      (range.isIpv6() ? ipv6 : ipv4).insert(range, i);
+    }
+    ipv4.trim();
+    ipv6.trim();
+  }
+
+  public static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Convenience for building an index whose payloads are the given CIDR strings.
+   * @param cidrs the CIDR blocks to index
+   * @return a new index
+   * @throws IllegalArgumentException if any of the CIDR blocks are invalid
+   */
+  public static CidrIndex<String> ofCidrs(Iterable<String> cidrs) {
+    final Builder<String> builder = builder();
+    for (String cidr : cidrs) {
+      builder.add(cidr, cidr);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return a builder initially populated with the blocks of this index
+   */
+  public Builder<T> toBuilder() {
+    final Builder<T> builder = builder();
+    builder.entries.addAll(entries);
+    return builder;
+  }
+
+  /**
+   * @return the indexed blocks in the order they were added
+   */
+  public List<Entry<T>> getEntries() {
+    return entries;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return true if any of the indexed blocks of the same address family contain the address
+   */
+  public boolean contains(IpAddress address) {
+    return find(address) >= 0;
+  }
+
+  /**
+   * @param address an address literal
+   * @return true if any of the indexed blocks of the same address family contain the address
+   * @throws IllegalArgumentException if the given string is not an address literal
+   */
+  public boolean contains(String address) {
+    return contains(IpAddress.parse(address));
+  }
+
+  /**
+   * @return the most specific indexed block that contains the address or null if none do
+   */
+  @Nullable
+  public Entry<T> longestMatch(IpAddress address) {
+    final int index = find(address);
+    return index >= 0 ? entries.get(index) : null;
+  }
+
+  private int find(IpAddress address) {
+    return (address.isIpv6() ? ipv6 : ipv4).find(address.getHigh(), address.getLow());
+  }
+
+  public static final class Entry<T> {
+    private final CidrRange range;
+    private final T payload;
+
+    Entry(CidrRange range, T payload) {
+      this.range = range;
+      this.payload = payload;
+    }
+
+    public CidrRange getRange() {
+      return range;
+    }
+
+    public T getPayload() {
+      return payload;
+    }
+
+    @Override
+    public String toString() {
+      return range + "=" + payload;
+    }
+  }
+
+  public static final class Builder<T> {
+    private final List<Entry<T>> entries = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    /**
+     * @param cidr a CIDR block, such as <code>10.0.0.0/8</code>
+     * @param payload the value to associate with the block
+     * @throws IllegalArgumentException if the CIDR block is invalid
+     */
+    public Builder<T> add(String cidr, T payload) {
+      return add(CidrRange.parse(cidr), payload);
+    }
+
+    /**
+     * Adds a block to the index. If the same block is added more than once, the last
+     * payload is used.
+     */
+    public Builder<T> add(CidrRange range, T payload) {
+      entries.add(new Entry<>(range, payload));
+      return this;
+    }
+
+    public CidrIndex<T> build() {
+      return new CidrIndex<>(Collections.unmodifiableList(new ArrayList<>(entries)));
+    }
+  }
+
+  /**
+   * A binary trie where node 0 is the root and a child index of 0 indicates no child.
+   */
+  private static class Trie {
+    final int width;
+    int[] zero = new int[16];
+    int[] one = new int[16];
+    int[] entry = new int[16];
+    int nodeCount = 1;
+
+    Trie(int width) {
+      this.width = width;
+      entry[0] = -1;
+    }
+
+    void insert(CidrRange range, int entryIndex) {
+      int node = 0;
+      for (int depth = 0; depth < range.getPrefixLength(); depth++) {
+        final boolean isOne = bit(range.getStartHigh(), range.getStartLow(), depth) == 1;
+        int child = isOne ? one[node] : zero[node];
+        if (child == 0) {
+          // allocate before indexing since growing replaces the arrays
+          child = newNode();
+          if (isOne) {
+            one[node] = child;
+          } else {
+            zero[node] = child;
+          }
+        }
+        node = child;
+      }
+      entry[node] = entryIndex;
+    }
+
+    int find(long high, long low) {
+      int node = 0;
+      int found = entry[0];
+      for (int depth = 0; depth < width; depth++) {
+        node = bit(high, low, depth) == 0 ? zero[node] : one[node];
+        if (node == 0) {
+          break;
+        }
+        if (entry[node] >= 0) {
+          found = entry[node];
+        }
+      }
+      return found;
+    }
+
+    private int newNode() {
+      if (nodeCount == entry.length) {
+        final int capacity = nodeCount * 2;
+        zero = Arrays.copyOf(zero, capacity);
+        one = Arrays.copyOf(one, capacity);
+        entry = Arrays.copyOf(entry, capacity);
+      }
+      entry[nodeCount] = -1;
+      return nodeCount++;
+    }
+
+    void trim() {
+      zero = Arrays.copyOf(zero, nodeCount);
+      one = Arrays.copyOf(one, nodeCount);
+      entry = Arrays.copyOf(entry, nodeCount);
+    }
+
+    /**
+     * @return the bit at the given depth, counting from the most significant bit of the address
+     */
+    private int bit(long high, long low, int depth) {
+      if (width == 32) {
+        return (int) (low >>> (31 - depth)) & 1;
+      } else if (depth < 64) {
+        return (int) (high >>> (63 - depth)) & 1;
+      } else {
+        return (int) (low >>> (127 - depth)) & 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+/**
+ * An immutable IPv4 or IPv6 CIDR block held as pairs of longs for its first and last addresses,
+ * so that checking whether it contains an {@link IpAddress} performs no allocation.
+ */
+public final class CidrRange {
+
+  private final boolean ipv6;
+  private final int prefixLength;
+  private final long startHigh;
+  private final long startLow;
+  private final long endHigh;
+  private final long endLow;
+
+  private CidrRange(boolean ipv6, int prefixLength,
+                    long startHigh, long startLow, long endHigh, long endLow) {
+    this.ipv6 = ipv6;
+    this.prefixLength = prefixLength;
+    this.startHigh = startHigh;
+    this.startLow = startLow;
+    this.endHigh = endHigh;
+    this.endLow = endLow;
+  }
+
+  /**
+   * @param address any address within the block, where host bits are ignored
+   * @param prefixLength the number of network bits
+   * @return the CIDR block of the given address
+   * @throws IllegalArgumentException if the prefix length is out of range for the address family
+   */
+  public static CidrRange of(IpAddress address, int prefixLength) {
+    final int bits = address.isIpv6() ? 128 : 32;
+    if (prefixLength < 0 || prefixLength > bits) {
+      throw new IllegalArgumentException(
+          String.format("Prefix length %d is not within 0 and %d", prefixLength, bits));
+    }
+
+    final long highMask;
+    final long lowMask;
+    final long hostHighMask;
+    final long hostLowMask;
+    if (address.isIpv6()) {
+      highMask = prefixLength >= 64 ? -1L : prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+      lowMask = prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+      hostHighMask = ~highMask;
+      hostLowMask = ~lowMask;
+    } else {
+      highMask = 0;
+      lowMask = prefixLength == 0 ? 0 : (0xffffffffL << (32 - prefixLength)) & 0xffffffffL;
+      hostHighMask = 0;
+      hostLowMask = ~lowMask & 0xffffffffL;
+    }
+
+    final long startHigh = address.getHigh() & highMask;
+    final long startLow = address.getLow() & lowMask;
+    return new CidrRange(address.isIpv6(), prefixLength,
+        startHigh, startLow, startHigh | hostHighMask, startLow | hostLowMask);
+  }
+
+  /**
+   * Parses CIDR notation, such as <code>10.0.0.0/8</code> or <code>2001:db8::/32</code>.
+   * No hostname resolution is performed.
+   * @param cidr the CIDR block to parse
+   * @return the parsed block
+   * @throws IllegalArgumentException if the given string is not a valid CIDR block
+   */
+  public static CidrRange parse(String cidr) {
+    final int index = cidr.indexOf('/');
+    if (index < 0) {
+      throw new IllegalArgumentException("not a valid CIDR format!");
+    }
+    return of(IpAddress.parse(cidr.substring(0, index)),
+        Integer.parseInt(cidr.substring(index + 1)));
+  }
+
+  public boolean isIpv6() {
+    return ipv6;
+  }
+
+  public int getPrefixLength() {
+    return prefixLength;
+  }
+
+  /**
+   * @return the first address of the block
+   */
+  public IpAddress getNetworkAddress() {
+    return ipv6 ? IpAddress.ofIpv6(startHigh, startLow) : IpAddress.ofIpv4((int) startLow);
+  }
+
+  /**
+   * @return the last address of the block
+   */
+  public IpAddress getBroadcastAddress() {
+    return ipv6 ? IpAddress.ofIpv6(endHigh, endLow) : IpAddress.ofIpv4((int) endLow);
+  }
+
+  /**
+   * Indicates if the numeric value of the given address is within this block. As with
+   * {@link CIDRUtils#isInRange(String)}, IPv4 addresses compare equal to IPv4-compatible
+   * IPv6 addresses.
+   */
+  public boolean contains(IpAddress address) {
+    return contains(address.getHigh(), address.getLow());
+  }
+
+  /**
+   * Primitive variant of {@link #contains(IpAddress)}
+   * @param high the value of {@link IpAddress#getHigh()}
+   * @param low the value of {@link IpAddress#getLow()}
+   */
+  public boolean contains(long high, long low) {
+    return IpAddress.compare(startHigh, startLow, high, low) <= 0
+        && IpAddress.compare(high, low, endHigh, endLow) <= 0;
+  }
+
+  long getStartHigh() {
+    return startHigh;
+  }
+
+  long getStartLow() {
+    return startLow;
+  }
+
+  long getEndHigh() {
+    return endHigh;
+  }
+
+  long getEndLow() {
+    return endLow;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CidrRange)) {
+      return false;
+    }
+    final CidrRange that = (CidrRange) o;
+    return ipv6 == that.ipv6 && prefixLength == that.prefixLength
+        && startHigh == that.startHigh && startLow == that.startLow;
+  }
+
+  @Override
+  public int hashCode() {
+    return (Long.hashCode(startHigh) * 31 + Long.hashCode(startLow)) * 31 + prefixLength;
+  }
+
+  @Override
+  public String toString() {
+    return getNetworkAddress() + "/" + prefixLength;
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Operations on sets of {@link CidrRange}s, such as allow-lists and address pools.
+ * <p>
+ *   Sets are normalized by {@link #merge(Collection)} into the minimal list of CIDR blocks that
+ *   cover exactly the same addresses, which keeps downstream matching, such as with
+ *   {@link CidrIndex}, as cheap as possible. Results list IPv4 blocks followed by IPv6 blocks,
+ *   each in ascending order.
+ * </p>
+ * <p>
+ *   The addresses or sub-prefixes of a block are streamed lazily, so even a <code>/8</code>
+ *   can be walked without materializing it.
+ * </p>
+ */
+public final class CidrRanges {
+
+  private static final Comparator<Interval> INTERVAL_ORDER = (a, b) -> {
+    if (a.ipv6 != b.ipv6) {
+      return a.ipv6 ? 1 : -1;
+    }
+    return IpAddress.compare(a.startHigh, a.startLow, b.startHigh, b.startLow);
+  };
+
+  private CidrRanges() {
+  }
+
+  /**
+   * Merges overlapping and adjacent blocks.
+   * @param ranges the blocks to merge, which may overlap
+   * @return the minimal list of blocks that cover the same addresses
+   */
+  public static List<CidrRange> merge(Collection<CidrRange> ranges) {
+    return toRanges(mergeIntervals(ranges));
+  }
+
+  /**
+   * @param ranges the blocks to subtract from
+   * @param excluded the blocks to remove
+   * @return the minimal list of blocks that cover the addresses of <code>ranges</code> that
+   * are not within any of <code>excluded</code>
+   */
+  public static List<CidrRange> subtract(Collection<CidrRange> ranges,
+                                         Collection<CidrRange> excluded) {
+    final List<Interval> remaining = mergeIntervals(ranges);
+    final List<Interval> removing = mergeIntervals(excluded);
+
+    final List<Interval> result = new ArrayList<>();
+    int r = 0;
+    for (Interval interval : remaining) {
+      long cursorHigh = interval.startHigh;
+      long cursorLow = interval.startLow;
+      boolean consumed = false;
+
+      while (r < removing.size() && removing.get(r).isBefore(interval)) {
+        r++;
+      }
+      while (!consumed && r < removing.size() && removing.get(r).ipv6 == interval.ipv6) {
+        final Interval removal = removing.get(r);
+        if (IpAddress.compare(removal.startHigh, removal.startLow,
+            interval.endHigh, interval.endLow) > 0) {
+          break;
+        }
+        if (IpAddress.compare(removal.startHigh, removal.startLow, cursorHigh, cursorLow) > 0) {
+          final long beforeLow = removal.startLow - 1;
+          final long beforeHigh = removal.startLow == 0 ? removal.startHigh - 1 : removal.startHigh;
+          result.add(new Interval(interval.ipv6, cursorHigh, cursorLow, beforeHigh, beforeLow));
+        }
+        if (IpAddress.compare(removal.endHigh, removal.endLow,
+            interval.endHigh, interval.endLow) >= 0) {
+          // the rest of the interval is removed and the removal may also overlap the next one
+          consumed = true;
+        } else {
+          cursorLow = removal.endLow + 1;
+          cursorHigh = cursorLow == 0 ? removal.endHigh + 1 : removal.endHigh;
+          r++;
+        }
+      }
+      if (!consumed) {
+        result.add(new Interval(interval.ipv6, cursorHigh, cursorLow,
+            interval.endHigh, interval.endLow));
+      }
+    }
+    return toRanges(result);
+  }
+
+  /**
+   * @return a lazy, ordered stream of every address in the block, including the network and
+   * broadcast addresses
+   */
+  public static Stream<IpAddress> addresses(CidrRange range) {
+    final boolean ipv6 = range.isIpv6();
+    return StreamSupport.stream(new RangeSpliterator<>(
+        range.getStartHigh(), range.getStartLow(), range.getEndHigh(), range.getEndLow(), 0,
+        (high, low) -> ipv6 ? IpAddress.ofIpv6(high, low) : IpAddress.ofIpv4((int) low)
+    ), false);
+  }
+
+  /**
+   * @param range the block to divide
+   * @param prefixLength the prefix length of the sub-blocks, which must be at least the prefix
+   * length of the given block
+   * @return a lazy, ordered stream of the sub-blocks of the given block
+   * @throws IllegalArgumentException if the prefix length is out of range
+   */
+  public static Stream<CidrRange> subnets(CidrRange range, int prefixLength) {
+    final boolean ipv6 = range.isIpv6();
+    final int width = width(ipv6);
+    if (prefixLength < range.getPrefixLength() || prefixLength > width) {
+      throw new IllegalArgumentException(String.format(
+          "Prefix length %d is not within %d and %d", prefixLength, range.getPrefixLength(), width));
+    }
+    final int shift = width - prefixLength;
+
+    // the last sub-block starts at the broadcast address with its host bits cleared
+    final long lastHigh;
+    final long lastLow;
+    if (shift >= 64) {
+      lastHigh = shift == 128 ? 0 : range.getEndHigh() & (-1L << (shift - 64));
+      lastLow = 0;
+    } else {
+      lastHigh = range.getEndHigh();
+      lastLow = range.getEndLow() & (-1L << shift);
+    }
+
+    return StreamSupport.stream(new RangeSpliterator<>(
+        range.getStartHigh(), range.getStartLow(), lastHigh, lastLow, shift,
+        (high, low) -> CidrRange.of(
+            ipv6 ? IpAddress.ofIpv6(high, low) : IpAddress.ofIpv4((int) low), prefixLength)
+    ), false);
+  }
+
+  private static int width(boolean ipv6) {
+    return ipv6 ? 128 : 32;
+  }
+
+  /**
+   * @return the disjoint, non-adjacent intervals covering the given blocks in sorted order
+   */
+  private static List<Interval> mergeIntervals(Collection<CidrRange> ranges) {
+    final List<Interval> intervals = new ArrayList<>(ranges.size());
+    for (CidrRange range : ranges) {
+      intervals.add(new Interval(range.isIpv6(),
+          range.getStartHigh(), range.getStartLow(), range.getEndHigh(), range.getEndLow()));
+    }
+    intervals.sort(INTERVAL_ORDER);
+
+    final List<Interval> merged = new ArrayList<>();
+    Interval current = null;
+    for (Interval next : intervals) {
+      if (current != null && current.ipv6 == next.ipv6 && current.touches(next)) {
+        if (IpAddress.compare(next.endHigh, next.endLow, current.endHigh, current.endLow) > 0) {
+          current = new Interval(current.ipv6,
+              current.startHigh, current.startLow, next.endHigh, next.endLow);
+        }
+      } else {
+        if (current != null) {
+          merged.add(current);
+        }
+        current = next;
+      }
+    }
+    if (current != null) {
+      merged.add(current);
+    }
+    return merged;
+  }
+
+  /**
+   * Decomposes each interval into the fewest CIDR blocks by repeatedly taking the largest block
+   * that is aligned at the start of the remaining interval and does not extend past its end.
+   */
+  private static List<CidrRange> toRanges(List<Interval> intervals) {
+    final List<CidrRange> ranges = new ArrayList<>();
+    for (Interval interval : intervals) {
+      final int width = width(interval.ipv6);
+      long high = interval.startHigh;
+      long low = interval.startLow;
+      while (true) {
+        final int alignment =
+            low != 0 ? Long.numberOfTrailingZeros(low) :
+            high != 0 ? 64 + Long.numberOfTrailingZeros(high) : 128;
+
+        // floor(log2(end - start + 1)) where the count may be 2^128
+        final long diffLow = interval.endLow - low;
+        final long diffHigh = interval.endHigh - high
+            - (Long.compareUnsigned(interval.endLow, low) < 0 ? 1 : 0);
+        final long countLow = diffLow + 1;
+        final long countHigh = countLow == 0 ? diffHigh + 1 : diffHigh;
+        final int sizeBits =
+            countHigh == 0 && countLow == 0 ? 128 :
+            countHigh != 0 ? 127 - Long.numberOfLeadingZeros(countHigh) :
+            63 - Long.numberOfLeadingZeros(countLow);
+
+        final int hostBits = Math.min(width, Math.min(alignment, sizeBits));
+        ranges.add(CidrRange.of(interval.ipv6 ?
+            IpAddress.ofIpv6(high, low) : IpAddress.ofIpv4((int) low), width - hostBits));
+
+        // since the block is aligned, its last address is the start with the host bits set
+        final long blockEndHigh;
+        final long blockEndLow;
+        if (hostBits >= 64) {
+          blockEndHigh = hostBits == 128 ? -1L : high | ((1L << (hostBits - 64)) - 1);
+          blockEndLow = -1L;
+        } else {
+          blockEndHigh = high;
+          blockEndLow = low | ((1L << hostBits) - 1);
+        }
+        if (blockEndHigh == interval.endHigh && blockEndLow == interval.endLow) {
+          break;
+        }
+        low = blockEndLow + 1;
+        high = low == 0 ? blockEndHigh + 1 : blockEndHigh;
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * An inclusive range of addresses that need not be aligned to a CIDR block.
+   */
+  private static class Interval {
+    final boolean ipv6;
+    final long startHigh;
+    final long startLow;
+    final long endHigh;
+    final long endLow;
+
+    Interval(boolean ipv6, long startHigh, long startLow, long endHigh, long endLow) {
+      this.ipv6 = ipv6;
+      this.startHigh = startHigh;
+      this.startLow = startLow;
+      this.endHigh = endHigh;
+      this.endLow = endLow;
+    }
+
+    /**
+     * @return true if this interval ends before the other one starts
+     */
+    boolean isBefore(Interval other) {
+      if (ipv6 != other.ipv6) {
+        return !ipv6;
+      }
+      return IpAddress.compare(endHigh, endLow, other.startHigh, other.startLow) < 0;
+    }
+
+    /**
+     * @param later an interval that starts at or after this one
+     * @return true if the intervals overlap or are adjacent
+     */
+    boolean touches(Interval later) {
+      final long afterLow = endLow + 1;
+      final long afterHigh = afterLow == 0 ? endHigh + 1 : endHigh;
+      if (afterHigh == 0 && afterLow == 0) {
+        // this interval runs to the end of the address space
+        return true;
+      }
+      return IpAddress.compare(later.startHigh, later.startLow, afterHigh, afterLow) <= 0;
+    }
+  }
+
+  private interface ValueFactory<T> {
+    T create(long high, long low);
+  }
+
+  /**
+   * Steps through 128-bit values from a start to an inclusive last value in increments of
+   * <code>2^shift</code>. Splitting divides the remaining values in half, which allows for
+   * parallel streams.
+   */
+  private static class RangeSpliterator<T> implements Spliterator<T> {
+    private final int shift;
+    private final ValueFactory<T> factory;
+    private long currentHigh;
+    private long currentLow;
+    private long lastHigh;
+    private long lastLow;
+    private boolean exhausted;
+
+    RangeSpliterator(long currentHigh, long currentLow, long lastHigh, long lastLow,
+                     int shift, ValueFactory<T> factory) {
+      this.currentHigh = currentHigh;
+      this.currentLow = currentLow;
+      this.lastHigh = lastHigh;
+      this.lastLow = lastLow;
+      this.shift = shift;
+      this.factory = factory;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (exhausted) {
+        return false;
+      }
+      action.accept(factory.create(currentHigh, currentLow));
+      if (currentHigh == lastHigh && currentLow == lastLow) {
+        exhausted = true;
+      } else if (shift >= 64) {
+        currentHigh += 1L << (shift - 64);
+      } else {
+        final long next = currentLow + (1L << shift);
+        if (Long.compareUnsigned(next, currentLow) < 0) {
+          currentHigh++;
+        }
+        currentLow = next;
+      }
+      return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (exhausted) {
+        return null;
+      }
+      // steps = (last - current) >>> shift, which is one less than the remaining count
+      final long diffLow = lastLow - currentLow;
+      final long diffHigh = lastHigh - currentHigh
+          - (Long.compareUnsigned(lastLow, currentLow) < 0 ? 1 : 0);
+      final long stepsHigh = shiftRightHigh(diffHigh, shift);
+      final long stepsLow = shiftRightLow(diffHigh, diffLow, shift);
+      if (stepsHigh == 0 && stepsLow == 0) {
+        return null;
+      }
+
+      // the prefix takes the first floor(steps / 2) + 1 values
+      final long prefixStepsHigh = stepsHigh >>> 1;
+      final long prefixStepsLow = (stepsLow >>> 1) | (stepsHigh << 63);
+
+      // prefixLast = current + (prefixSteps << shift)
+      final long offsetHigh = shiftLeftHigh(prefixStepsHigh, prefixStepsLow, shift);
+      final long offsetLow = shiftLeftLow(prefixStepsLow, shift);
+      final long prefixLastLow = currentLow + offsetLow;
+      final long prefixLastHigh = currentHigh + offsetHigh
+          + (Long.compareUnsigned(prefixLastLow, currentLow) < 0 ? 1 : 0);
+
+      final RangeSpliterator<T> prefix = new RangeSpliterator<>(
+          currentHigh, currentLow, prefixLastHigh, prefixLastLow, shift, factory);
+
+      // this spliterator continues one step after the prefix
+      final long stepHigh = shift >= 64 ? 1L << (shift - 64) : 0;
+      final long stepLow = shift >= 64 ? 0 : 1L << shift;
+      currentLow = prefixLastLow + stepLow;
+      currentHigh = prefixLastHigh + stepHigh
+          + (Long.compareUnsigned(currentLow, prefixLastLow) < 0 ? 1 : 0);
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      if (exhausted) {
+        return 0;
+      }
+      final long diffLow = lastLow - currentLow;
+      final long diffHigh = lastHigh - currentHigh
+          - (Long.compareUnsigned(lastLow, currentLow) < 0 ? 1 : 0);
+      final long stepsHigh = shiftRightHigh(diffHigh, shift);
+      final long stepsLow = shiftRightLow(diffHigh, diffLow, shift);
+      // report the maximum when the count does not fit in a long
+      return stepsHigh != 0 || stepsLow < 0 || stepsLow == Long.MAX_VALUE ?
+          Long.MAX_VALUE : stepsLow + 1;
+    }
+
+    @Override
+    public int characteristics() {
+      final int characteristics = ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+      return estimateSize() < Long.MAX_VALUE ? characteristics | SIZED | SUBSIZED
+          : characteristics;
+    }
+
+    private static long shiftRightHigh(long high, int shift) {
+      return shift >= 64 ? 0 : high >>> shift;
+    }
+
+    private static long shiftRightLow(long high, long low, int shift) {
+      if (shift == 0) {
+        return low;
+      } else if (shift >= 64) {
+        return shift == 128 ? 0 : high >>> (shift - 64);
+      } else {
+        return (low >>> shift) | (high << (64 - shift));
+      }
+    }
+
+    private static long shiftLeftHigh(long high, long low, int shift) {
+      if (shift == 0) {
+        return high;
+      } else if (shift >= 64) {
+        return shift == 128 ? 0 : low << (shift - 64);
+      } else {
+        return (high << shift) | (low >>> (64 - shift));
+      }
+    }
+
+    private static long shiftLeftLow(long low, int shift) {
+      return shift >= 64 ? 0 : low << shift;
+    }
+  }
+}
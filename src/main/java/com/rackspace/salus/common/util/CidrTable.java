@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A compact, read-only table of IPv4 and IPv6 address ranges, each with an <code>int</code>
+ * value, that is searched in place by binary search. It is intended for very large lists,
+ * such as threat or geo lists with hundreds of thousands of prefixes.
+ * <p>
+ *   Tables are produced by {@link Builder}, typically from a text list of CIDR blocks, and
+ *   written to a file that {@link #open(Path)} memory-maps. The data then lives off-heap and
+ *   opening a table does no parsing, so it is near-instant regardless of size. Lookups use
+ *   absolute reads only, so a table can be shared by any number of threads.
+ * </p>
+ * <p>
+ *   The file is big-endian and consists of:
+ * </p>
+ * <ul>
+ *   <li>a header of the magic number, format version, IPv4 range count, and IPv6 range count,
+ *   each an <code>int</code></li>
+ *   <li>the IPv4 ranges as first address, last address, and value, each an <code>int</code></li>
+ *   <li>the IPv6 ranges as the high and low <code>long</code>s of the first address, the same
+ *   for the last address, and an <code>int</code> value</li>
+ * </ul>
+ * <p>
+ *   Ranges of each family are sorted and disjoint.
+ * </p>
+ */
+public final class CidrTable {
+
+  static final int MAGIC = 0x53434454; // "SCDT"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int IPV4_ENTRY_SIZE = 12;
+  static final int IPV6_ENTRY_SIZE = 36;
+
+  private final ByteBuffer buffer;
+  private final int ipv4Count;
+  private final int ipv6Count;
+  private final int ipv6Offset;
+
+  private CidrTable(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a CIDR table");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException(
+          String.format("Unsupported CIDR table version %d", buffer.getInt(4)));
+    }
+    ipv4Count = buffer.getInt(8);
+    ipv6Count = buffer.getInt(12);
+    // computed as a long so that a corrupt count cannot wrap around before it is checked
+    final long offset = HEADER_SIZE + (long) ipv4Count * IPV4_ENTRY_SIZE;
+    if (ipv4Count < 0 || ipv6Count < 0
+        || buffer.capacity() != offset + (long) ipv6Count * IPV6_ENTRY_SIZE) {
+      throw new IllegalArgumentException("CIDR table is truncated or corrupt");
+    }
+    ipv6Offset = (int) offset;
+  }
+
+  /**
+   * Memory-maps the given table file.
+   * @throws IOException if the file could not be read
+   * @throws IllegalArgumentException if the file is not a valid table
+   */
+  public static CidrTable open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // the mapping remains valid after the channel is closed
+      return new CidrTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @param buffer the contents of a table, which are not copied
+   * @throws IllegalArgumentException if the buffer does not contain a valid table
+   */
+  public static CidrTable wrap(ByteBuffer buffer) {
+    return new CidrTable(buffer);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return the number of IPv4 and IPv6 ranges in the table
+   */
+  public int size() {
+    return ipv4Count + ipv6Count;
+  }
+
+  public boolean contains(IpAddress address) {
+    return find(address) >= 0;
+  }
+
+  /**
+   * @param address the address to look up
+   * @param defaultValue the value to return if no range contains the address
+   * @return the value of the range containing the address
+   */
+  public int lookup(IpAddress address, int defaultValue) {
+    final int index = find(address);
+    if (index < 0) {
+      return defaultValue;
+    }
+    return address.isIpv6() ?
+        buffer.getInt(ipv6Offset + index * IPV6_ENTRY_SIZE + 32) :
+        buffer.getInt(HEADER_SIZE + index * IPV4_ENTRY_SIZE + 8);
+  }
+
+  /**
+   * @return the index of the range containing the address or -1 if none do
+   */
+  private int find(IpAddress address) {
+    return address.isIpv6() ?
+        findIpv6(address.getHigh(), address.getLow()) :
+        findIpv4((int) address.getLow());
+  }
+
+  private int findIpv4(int address) {
+    // locate the last range starting at or before the address
+    int lowIndex = 0;
+    int highIndex = ipv4Count - 1;
+    int candidate = -1;
+    while (lowIndex <= highIndex) {
+      final int mid = (lowIndex + highIndex) >>> 1;
+      final int start = buffer.getInt(HEADER_SIZE + mid * IPV4_ENTRY_SIZE);
+      if (Integer.compareUnsigned(start, address) <= 0) {
+        candidate = mid;
+        lowIndex = mid + 1;
+      } else {
+        highIndex = mid - 1;
+      }
+    }
+    if (candidate >= 0 && Integer.compareUnsigned(address,
+        buffer.getInt(HEADER_SIZE + candidate * IPV4_ENTRY_SIZE + 4)) <= 0) {
+      return candidate;
+    }
+    return -1;
+  }
+
+  private int findIpv6(long high, long low) {
+    int lowIndex = 0;
+    int highIndex = ipv6Count - 1;
+    int candidate = -1;
+    while (lowIndex <= highIndex) {
+      final int mid = (lowIndex + highIndex) >>> 1;
+      final int offset = ipv6Offset + mid * IPV6_ENTRY_SIZE;
+      if (IpAddress.compare(buffer.getLong(offset), buffer.getLong(offset + 8), high, low) <= 0) {
+        candidate = mid;
+        lowIndex = mid + 1;
+      } else {
+        highIndex = mid - 1;
+      }
+    }
+    if (candidate >= 0) {
+      final int offset = ipv6Offset + candidate * IPV6_ENTRY_SIZE;
+      if (IpAddress.compare(high, low,
+          buffer.getLong(offset + 16), buffer.getLong(offset + 24)) <= 0) {
+        return candidate;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Accumulates CIDR blocks and their values. Overlapping or adjacent blocks with the same
+   * value are combined into a single range, but overlapping blocks with different values
+   * are rejected since the table cannot hold nested ranges.
+   */
+  public static final class Builder {
+    private final List<Range> ranges = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    public Builder add(CidrRange range, int value) {
+      ranges.add(new Range(range.isIpv6(), range.getStartHigh(), range.getStartLow(),
+          range.getEndHigh(), range.getEndLow(), value));
+      return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the CIDR block is invalid
+     */
+    public Builder add(String cidr, int value) {
+      return add(CidrRange.parse(cidr), value);
+    }
+
+    /**
+     * Reads a text list with one CIDR block per line, optionally followed by whitespace and an
+     * integer value. Blocks without a value are given zero. Blank lines and anything
+     * following a <code>#</code> are ignored.
+     * @throws IOException if reading failed
+     * @throws IllegalArgumentException if a line is invalid
+     */
+    public Builder read(BufferedReader reader) throws IOException {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        final int comment = line.indexOf('#');
+        final String content = (comment >= 0 ? line.substring(0, comment) : line).trim();
+        if (content.isEmpty()) {
+          continue;
+        }
+        final String[] parts = content.split("\\s+");
+        try {
+          if (parts.length > 2) {
+            throw new IllegalArgumentException("Expected a CIDR block and an optional value");
+          }
+          add(parts[0], parts.length == 2 ? Integer.parseInt(parts[1]) : 0);
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException(
+              String.format("Invalid line %d '%s': %s", lineNumber, line, e.getMessage()), e);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * @return a table held in a heap buffer
+     * @throws IllegalArgumentException if blocks with different values overlap
+     */
+    public CidrTable build() {
+      return new CidrTable(encode());
+    }
+
+    /**
+     * Writes the table to the given file, which is replaced if it already exists.
+     * @throws IOException if writing failed
+     * @throws IllegalArgumentException if blocks with different values overlap
+     */
+    public void writeTo(Path path) throws IOException {
+      final ByteBuffer encoded = encode();
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (encoded.hasRemaining()) {
+          channel.write(encoded);
+        }
+      }
+    }
+
+    private ByteBuffer encode() {
+      final List<Range> combined = combine();
+      int ipv4Count = 0;
+      for (Range range : combined) {
+        if (!range.ipv6) {
+          ipv4Count++;
+        }
+      }
+      final int ipv6Count = combined.size() - ipv4Count;
+
+      final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(HEADER_SIZE
+          + (long) ipv4Count * IPV4_ENTRY_SIZE + (long) ipv6Count * IPV6_ENTRY_SIZE));
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(ipv4Count).putInt(ipv6Count);
+      // IPv4 ranges sort first
+      for (Range range : combined) {
+        if (range.ipv6) {
+          buffer.putLong(range.startHigh).putLong(range.startLow)
+              .putLong(range.endHigh).putLong(range.endLow)
+              .putInt(range.value);
+        } else {
+          buffer.putInt((int) range.startLow).putInt((int) range.endLow).putInt(range.value);
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    private List<Range> combine() {
+      final List<Range> sorted = new ArrayList<>(ranges);
+      sorted.sort(Comparator.<Range, Boolean>comparing(range -> range.ipv6).thenComparing(
+          (a, b) -> IpAddress.compare(a.startHigh, a.startLow, b.startHigh, b.startLow)));
+
+      final List<Range> combined = new ArrayList<>();
+      Range current = null;
+      for (Range next : sorted) {
+        if (current != null && current.ipv6 == next.ipv6) {
+          final boolean overlaps = IpAddress.compare(
+              next.startHigh, next.startLow, current.endHigh, current.endLow) <= 0;
+          if (overlaps && next.value != current.value) {
+            throw new IllegalArgumentException(String.format(
+                "Range %s with value %d overlaps range %s with value %d",
+                next, next.value, current, current.value));
+          }
+          if ((overlaps || current.isFollowedBy(next)) && next.value == current.value) {
+            if (IpAddress.compare(next.endHigh, next.endLow, current.endHigh, current.endLow) > 0) {
+              current = new Range(current.ipv6, current.startHigh, current.startLow,
+                  next.endHigh, next.endLow, current.value);
+            }
+            continue;
+          }
+        }
+        if (current != null) {
+          combined.add(current);
+        }
+        current = next;
+      }
+      if (current != null) {
+        combined.add(current);
+      }
+      return combined;
+    }
+  }
+
+  private static class Range {
+    final boolean ipv6;
+    final long startHigh;
+    final long startLow;
+    final long endHigh;
+    final long endLow;
+    final int value;
+
+    Range(boolean ipv6, long startHigh, long startLow, long endHigh, long endLow, int value) {
+      this.ipv6 = ipv6;
+      this.startHigh = startHigh;
+      this.startLow = startLow;
+      this.endHigh = endHigh;
+      this.endLow = endLow;
+      this.value = value;
+    }
+
+    /**
+     * @return true if the other range starts immediately after this one ends
+     */
+    boolean isFollowedBy(Range other) {
+      final long afterLow = endLow + 1;
+      final long afterHigh = afterLow == 0 ? endHigh + 1 : endHigh;
+      return other.startHigh == afterHigh && other.startLow == afterLow;
+    }
+
+    @Override
+    public String toString() {
+      return ipv6 ?
+          IpAddress.ofIpv6(startHigh, startLow) + "-" + IpAddress.ofIpv6(endHigh, endLow) :
+          IpAddress.ofIpv4((int) startLow) + "-" + IpAddress.ofIpv4((int) endLow);
+    }
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable IPv4 or IPv6 address held as a pair of longs, which allows for comparisons
+ * without allocation. IPv4 addresses are held in the low 32 bits of {@link #getLow()} with
+ * {@link #getHigh()} as zero.
+ * <p>
+ *   Instances can be parsed once and then repeatedly checked against {@link CidrRange}s.
+ * </p>
+ */
+public final class IpAddress implements Comparable<IpAddress> {
+
+  private final boolean ipv6;
+  private final long high;
+  private final long low;
+
+  private IpAddress(boolean ipv6, long high, long low) {
+    this.ipv6 = ipv6;
+    this.high = high;
+    this.low = low;
+  }
+
+  public static IpAddress ofIpv4(int address) {
+    return new IpAddress(false, 0, address & 0xffffffffL);
+  }
+
+  public static IpAddress ofIpv6(long high, long low) {
+    return new IpAddress(true, high, low);
+  }
+
+  /**
+   * @param address a 4 or 16 byte address in network byte order
+   * @return the equivalent address
+   * @throws IllegalArgumentException if the array is not 4 or 16 bytes long
+   */
+  public static IpAddress of(byte[] address) {
+    if (address.length == 4) {
+      return ofIpv4((int) readLong(address, 0, 4));
+    } else if (address.length == 16) {
+      return ofIpv6(readLong(address, 0, 8), readLong(address, 8, 8));
+    } else {
+      throw new IllegalArgumentException("Address must be 4 or 16 bytes");
+    }
+  }
+
+  /**
+   * Parses an IPv4 or IPv6 address literal. No hostname resolution is ever performed, so unlike
+   * {@link InetAddress#getByName(String)} this cannot block on DNS.
+   * <p>
+   *   IPv4 addresses must be in dotted-quad form without leading zeros. IPv6 addresses may use
+   *   <code>::</code> compression and a trailing dotted-quad, as described in RFC 4291 and RFC 5952.
+   *   Zone IDs and brackets are not accepted. As with {@link InetAddress}, IPv4-mapped IPv6
+   *   addresses, such as <code>::ffff:10.0.0.1</code>, are converted to IPv4.
+   * </p>
+   * @param address an address literal
+   * @return the parsed address
+   * @throws IllegalArgumentException if the given string is not an address literal
+   */
+  public static IpAddress parse(String address) {
+    final IpAddress parsed = tryParse(address);
+    if (parsed == null) {
+      throw new IllegalArgumentException(String.format("'%s' is not an IP address literal", address));
+    }
+    return parsed;
+  }
+
+  /**
+   * Same as {@link #parse(String)}, but returns null rather than throwing an exception when the
+   * given string is not an address literal.
+   */
+  @Nullable
+  public static IpAddress tryParse(String address) {
+    if (address.indexOf(':') >= 0) {
+      return parseIpv6(address);
+    }
+    final long ipv4 = parseIpv4(address, 0, address.length());
+    return ipv4 >= 0 ? ofIpv4((int) ipv4) : null;
+  }
+
+  public static IpAddress of(InetAddress address) {
+    return of(address.getAddress());
+  }
+
+  public boolean isIpv6() {
+    return ipv6;
+  }
+
+  /**
+   * @return the upper 64 bits of an IPv6 address or zero for IPv4
+   */
+  public long getHigh() {
+    return high;
+  }
+
+  /**
+   * @return the lower 64 bits of an IPv6 address or the unsigned 32 bits of an IPv4 address
+   */
+  public long getLow() {
+    return low;
+  }
+
+  /**
+   * @return the address in network byte order, 4 bytes for IPv4 and 16 bytes for IPv6
+   */
+  public byte[] toBytes() {
+    if (ipv6) {
+      final byte[] bytes = new byte[16];
+      writeLong(bytes, 0, high, 8);
+      writeLong(bytes, 8, low, 8);
+      return bytes;
+    } else {
+      final byte[] bytes = new byte[4];
+      writeLong(bytes, 0, low, 4);
+      return bytes;
+    }
+  }
+
+  public InetAddress toInetAddress() {
+    try {
+      // no lookup is performed when given the raw address
+      return InetAddress.getByAddress(toBytes());
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException("Address length was invalid", e);
+    }
+  }
+
+  /**
+   * Compares the numeric value of the addresses where IPv4 addresses have the same value
+   * as the IPv4-compatible IPv6 address, such as <code>::10.0.0.1</code>.
+   */
+  @Override
+  public int compareTo(IpAddress o) {
+    return compare(high, low, o.high, o.low);
+  }
+
+  static int compare(long high, long low, long otherHigh, long otherLow) {
+    final int result = Long.compareUnsigned(high, otherHigh);
+    return result != 0 ? result : Long.compareUnsigned(low, otherLow);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof IpAddress)) {
+      return false;
+    }
+    final IpAddress that = (IpAddress) o;
+    return ipv6 == that.ipv6 && high == that.high && low == that.low;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(high) * 31 + Long.hashCode(low) + (ipv6 ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return toInetAddress().getHostAddress();
+  }
+
+  /**
+   * @return the unsigned address or -1 if the given region is not a dotted-quad
+   */
+  private static long parseIpv4(String s, int start, int end) {
+    long result = 0;
+    int i = start;
+    for (int octet = 0; octet < 4; octet++) {
+      if (octet > 0) {
+        if (i >= end || s.charAt(i) != '.') {
+          return -1;
+        }
+        i++;
+      }
+      final int first = i;
+      int value = 0;
+      while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+        if (i - first == 3) {
+          return -1;
+        }
+        value = value * 10 + (s.charAt(i) - '0');
+        i++;
+      }
+      // leading zeros are rejected since some parsers treat them as octal
+      if (i == first || value > 255 || (i - first > 1 && s.charAt(first) == '0')) {
+        return -1;
+      }
+      result = (result << 8) | value;
+    }
+    return i == end ? result : -1;
+  }
+
+  @Nullable
+  private static IpAddress parseIpv6(String s) {
+    final int end = s.length();
+    final int[] groups = new int[8];
+    int count = 0;
+    // the index within groups where "::" was seen
+    int compressAt = -1;
+    int i = 0;
+
+    if (s.startsWith("::")) {
+      compressAt = 0;
+      i = 2;
+    }
+    while (i < end) {
+      if (count == 8) {
+        return null;
+      }
+      int j = i;
+      int value = 0;
+      int digit;
+      while (j < end && j - i < 4 && (digit = hexValue(s.charAt(j))) >= 0) {
+        value = (value << 4) | digit;
+        j++;
+      }
+      if (j < end && s.charAt(j) == '.') {
+        // trailing dotted-quad occupies the last two groups
+        final long ipv4 = count <= 6 ? parseIpv4(s, i, end) : -1;
+        if (ipv4 < 0) {
+          return null;
+        }
+        groups[count++] = (int) (ipv4 >>> 16);
+        groups[count++] = (int) (ipv4 & 0xffff);
+        break;
+      }
+      if (j == i) {
+        return null;
+      }
+      groups[count++] = value;
+      if (j == end) {
+        break;
+      }
+      if (s.charAt(j) != ':') {
+        return null;
+      }
+      j++;
+      if (j < end && s.charAt(j) == ':') {
+        if (compressAt >= 0) {
+          return null;
+        }
+        compressAt = count;
+        j++;
+      } else if (j == end) {
+        return null;
+      }
+      i = j;
+    }
+
+    if (compressAt < 0 ? count != 8 : count == 8) {
+      return null;
+    }
+    long high = 0;
+    long low = 0;
+    // expand the compressed zero groups while accumulating
+    final int gap = 8 - count;
+    for (int g = 0; g < 8; g++) {
+      final int value;
+      if (compressAt < 0 || g < compressAt) {
+        value = groups[g];
+      } else if (g < compressAt + gap) {
+        value = 0;
+      } else {
+        value = groups[g - gap];
+      }
+      if (g < 4) {
+        high = (high << 16) | value;
+      } else {
+        low = (low << 16) | value;
+      }
+    }
+
+    if (high == 0 && (low >>> 32) == 0xffff) {
+      return ofIpv4((int) low);
+    }
+    return ofIpv6(high, low);
+  }
+
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    } else {
+      return -1;
+    }
+  }
+
+  private static long readLong(byte[] bytes, int offset, int length) {
+    long result = 0;
+    for (int i = offset; i < offset + length; i++) {
+      result = (result << 8) | (bytes[i] & 0xffL);
+    }
+    return result;
+  }
+
+  private static void writeLong(byte[] bytes, int offset, long value, int length) {
+    for (int i = offset + length - 1; i >= offset; i--) {
+      bytes[i] = (byte) value;
+      value >>>= 8;
+    }
+  }
+}
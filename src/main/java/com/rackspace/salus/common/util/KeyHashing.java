@@ -19,37 +19,365 @@
 package com.rackspace.salus.common.util;
 
 import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+/**
+ * Hashes keys, such as tenant, resource, and monitor identifiers, with the algorithm configured
+ * by {@link KeyHashingProperties}.
+ * <p>
+ *   The default sha256 hashes are plain hex strings. Hashes from the other algorithms are
+ *   prefixed with their {@link Algorithm#getTag() tag} and a colon, such as <code>m3:</code>,
+ *   so that services running with different algorithms can tell the formats apart.
+ *   {@link Algorithm#ofHash(String)} identifies the algorithm of a given hash.
+ * </p>
+ */
 @Component
+@EnableConfigurationProperties(KeyHashingProperties.class)
 public class KeyHashing {
 
-    private final String DELIMITER = ":";
+    private static final char DELIMITER = ':';
+
+    private static final char TAG_DELIMITER = ':';
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Bulk hashing of fewer values than this is performed sequentially since the overhead of
+     * forking would outweigh the gain.
+     */
+    static final int PARALLEL_THRESHOLD = 1024;
+
+    public enum Algorithm {
+        SHA256(null, Hashing.sha256()),
+        MURMUR3_128("m3", Hashing.murmur3_128()),
+        SIP_HASH_24("sip", Hashing.sipHash24());
+
+        private final String tag;
+        private final HashFunction hashFunction;
+        /**
+         * Each thread reuses its own digest and scratch buffers, so hashing a key only allocates
+         * the returned value, if any.
+         */
+        private final ThreadLocal<HashingState> state;
+
+        Algorithm(String tag, HashFunction hashFunction) {
+            this.tag = tag;
+            this.hashFunction = hashFunction;
+            this.state = ThreadLocal.withInitial(() -> new HashingState(this));
+        }
+
+        /**
+         * @return the prefix applied to hex hashes of this algorithm or null for sha256, which
+         * is untagged for compatibility with existing hashes
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * Identifies the algorithm that produced the given hex hash.
+         * @param hash a value returned by {@link KeyHashing#hash(String...)}
+         * @return the algorithm indicated by the tag of the hash, where untagged hashes are sha256
+         * @throws IllegalArgumentException if the hash has an unknown tag
+         */
+        public static Algorithm ofHash(String hash) {
+            final int tagEnd = hash.indexOf(TAG_DELIMITER);
+            if (tagEnd < 0) {
+                return SHA256;
+            }
+            for (Algorithm algorithm : values()) {
+                if (algorithm.tag != null && hash.regionMatches(0, algorithm.tag, 0, tagEnd)
+                    && algorithm.tag.length() == tagEnd) {
+                    return algorithm;
+                }
+            }
+            throw new IllegalArgumentException("Unknown hash algorithm tag in " + hash);
+        }
+    }
+
+    private final Algorithm algorithm;
+
+    /**
+     * Creates an instance that uses the default sha256 algorithm.
+     */
+    public KeyHashing() {
+        this(Algorithm.SHA256);
+    }
+
+    @Autowired
+    public KeyHashing(KeyHashingProperties properties) {
+        this(properties.getAlgorithm());
+    }
+
+    public KeyHashing(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public Algorithm algorithm() {
+        return algorithm;
+    }
 
     public HashFunction hashFunction() {
-        return Hashing.sha256();
+        return algorithm.hashFunction;
     }
 
     /**
      * Performs a hashing function on the provided string and returns the output.
      *
      * @param values The string(s) to be hashed.  Colon separated if multiple are provided.
-     * @return The hashed result.
+     * @return The hashed result, hex encoded and prefixed with the algorithm's tag, if any.
      */
     public String hash(String... values) {
-        String value = String.join(DELIMITER, values);
-        return hashFunction().hashString(value, StandardCharsets.UTF_8).toString();
+        final HashingState state = algorithm.state.get();
+        final byte[] digest = state.digest(values);
+
+        final char[] hex = state.hex;
+        int pos = hex.length - digest.length * 2;
+        for (byte b : digest) {
+            hex[pos++] = HEX_DIGITS[(b >> 4) & 0xf];
+            hex[pos++] = HEX_DIGITS[b & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Hashes each of the given value tuples as {@link #hash(String...)} would. Large batches are
+     * spread across the common fork-join pool.
+     *
+     * @param values the tuples of string(s) to be hashed
+     * @return the hashed results in the same order as the given values
+     */
+    public List<String> hashAll(List<String[]> values) {
+        final String[][] tuples = values.toArray(new String[0][]);
+        final String[] results = new String[tuples.length];
+
+        IntStream indices = IntStream.range(0, tuples.length);
+        if (tuples.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> results[i] = hash(tuples[i]));
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Lazily hashes each of the given value tuples as {@link #hash(String...)} would.
+     * <p>
+     *   The returned stream is parallel when the given stream is known to have at least
+     *   {@value #PARALLEL_THRESHOLD} values; otherwise, such as for a filtered stream or one
+     *   reading from a file, it is parallel only if the given stream is. The encounter order of
+     *   the given stream is retained, so collecting or using {@link Stream#forEachOrdered} yields
+     *   the hashes in the same order as the values.
+     * </p>
+     *
+     * @param values the tuples of string(s) to be hashed
+     * @return a stream of the hashed results
+     */
+    public Stream<String> hashAll(Stream<String[]> values) {
+        final boolean parallel = values.isParallel();
+        final Spliterator<String[]> spliterator = values.spliterator();
+        return StreamSupport.stream(spliterator,
+            parallel || spliterator.getExactSizeIfKnown() >= PARALLEL_THRESHOLD)
+            .onClose(values::close)
+            .map(this::hash);
+    }
+
+    /**
+     * Performs the same hashing as {@link #hash(String...)}, but returns the raw hash bytes
+     * rather than their hex encoding. The raw bytes are never tagged.
+     *
+     * @param values The string(s) to be hashed.  Colon separated if multiple are provided.
+     * @return a new array of {@link #bits()}/8 bytes containing the hash
+     */
+    public byte[] hashBytes(String... values) {
+        return algorithm.state.get().digest(values).clone();
+    }
+
+    /**
+     * Performs the same hashing as {@link #hash(String...)}, but writes the raw hash bytes
+     * into the given array without allocating. The raw bytes are never tagged.
+     *
+     * @param dest the array to receive the hash
+     * @param offset the position in <code>dest</code> of the first hash byte
+     * @param values The string(s) to be hashed.  Colon separated if multiple are provided.
+     * @return the number of bytes written, which is always {@link #bits()}/8
+     * @throws IllegalArgumentException if <code>dest</code> does not have room for the hash
+     */
+    public int hashInto(byte[] dest, int offset, String... values) {
+        return algorithm.state.get().digestInto(values, dest, offset);
+    }
+
+    /**
+     * Performs the same hashing as {@link #hash(String...)}, but puts the raw hash bytes
+     * into the given buffer at its current position, which is then advanced.
+     * The raw bytes are never tagged.
+     *
+     * @param dest the buffer to receive the hash
+     * @param values The string(s) to be hashed.  Colon separated if multiple are provided.
+     * @throws java.nio.BufferOverflowException if <code>dest</code> does not have room for the hash
+     */
+    public void hashInto(ByteBuffer dest, String... values) {
+        dest.put(algorithm.state.get().digest(values));
+    }
+
+    /**
+     * Performs the same hashing as {@link #hash(String...)}, but returns the first eight bytes of
+     * the raw hash as a little-endian long, the same as {@link com.google.common.hash.HashCode#asLong()}.
+     * This is convenient for bucketing keys, such as with {@link Hashing#consistentHash(long, int)}.
+     *
+     * @param values The string(s) to be hashed.  Colon separated if multiple are provided.
+     * @return the leading 64 bits of the hash
+     */
+    public long hashToLong(String... values) {
+        final byte[] digest = algorithm.state.get().digest(values);
+        long result = 0;
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            result = (result << 8) | (digest[i] & 0xffL);
+        }
+        return result;
     }
 
     /**
-     * @return the bit size of the current hash algorithm
+     * @return the bit size of the current hash algorithm, which excludes the tag of hex hashes
      */
     public int bits() {
         return hashFunction().bits();
     }
+
+    private static class HashingState {
+        /**
+         * Only used for sha256, which is resettable unlike Guava's {@link Hasher}s
+         */
+        final MessageDigest messageDigest;
+        final HashFunction hashFunction;
+        final byte[] buffer = new byte[256];
+        final byte[] digest;
+        /**
+         * Pre-populated with the tag, if any, followed by space for the hex digits
+         */
+        final char[] hex;
+        Hasher hasher;
+
+        HashingState(Algorithm algorithm) {
+            if (algorithm == Algorithm.SHA256) {
+                try {
+                    messageDigest = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("SHA-256 is not available", e);
+                }
+            } else {
+                messageDigest = null;
+            }
+            hashFunction = algorithm.hashFunction;
+            digest = new byte[hashFunction.bits() / 8];
+
+            final String prefix = algorithm.tag != null ? algorithm.tag + TAG_DELIMITER : "";
+            hex = new char[prefix.length() + digest.length * 2];
+            prefix.getChars(0, prefix.length(), hex, 0);
+        }
+
+        /**
+         * @return the shared digest array, which is overwritten by the next use on this thread
+         */
+        byte[] digest(String[] values) {
+            digestInto(values, digest, 0);
+            return digest;
+        }
+
+        int digestInto(String[] values, byte[] dest, int offset) {
+            if (dest.length - offset < digest.length) {
+                throw new IllegalArgumentException("Destination is too small for the hash");
+            }
+            update(values);
+            if (messageDigest != null) {
+                try {
+                    return messageDigest.digest(dest, offset, digest.length);
+                } catch (DigestException e) {
+                    throw new IllegalStateException("Unable to complete digest", e);
+                }
+            } else {
+                final int written = hasher.hash().writeBytesTo(dest, offset, digest.length);
+                hasher = null;
+                return written;
+            }
+        }
+
+        /**
+         * Feeds the UTF-8 encoding of the values, delimited as if they were joined, into the
+         * digest. Malformed surrogates are encoded as '?' to exactly match
+         * {@link String#getBytes(java.nio.charset.Charset)}.
+         */
+        void update(String[] values) {
+            if (messageDigest == null) {
+                hasher = hashFunction.newHasher();
+            }
+            final byte[] buf = buffer;
+            int pos = 0;
+            for (int v = 0; v < values.length; v++) {
+                if (v > 0) {
+                    buf[pos++] = DELIMITER;
+                }
+                final String value = String.valueOf(values[v]);
+                final int length = value.length();
+                for (int i = 0; i < length; i++) {
+                    // leave room for the longest encoding plus a delimiter
+                    if (pos > buf.length - 5) {
+                        flush(pos);
+                        pos = 0;
+                    }
+                    final char c = value.charAt(i);
+                    if (c < 0x80) {
+                        buf[pos++] = (byte) c;
+                    } else if (c < 0x800) {
+                        buf[pos++] = (byte) (0xc0 | (c >> 6));
+                        buf[pos++] = (byte) (0x80 | (c & 0x3f));
+                    } else if (Character.isSurrogate(c)) {
+                        final char low = i + 1 < length ? value.charAt(i + 1) : 0;
+                        if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                            final int cp = Character.toCodePoint(c, low);
+                            buf[pos++] = (byte) (0xf0 | (cp >> 18));
+                            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                            buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+                            i++;
+                        } else {
+                            buf[pos++] = '?';
+                        }
+                    } else {
+                        buf[pos++] = (byte) (0xe0 | (c >> 12));
+                        buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                        buf[pos++] = (byte) (0x80 | (c & 0x3f));
+                    }
+                }
+                if (pos > buf.length - 5) {
+                    flush(pos);
+                    pos = 0;
+                }
+            }
+            flush(pos);
+        }
+
+        private void flush(int length) {
+            if (messageDigest != null) {
+                messageDigest.update(buffer, 0, length);
+            } else {
+                hasher.putBytes(buffer, 0, length);
+            }
+        }
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import com.rackspace.salus.common.util.KeyHashing.Algorithm;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("salus.key-hashing")
+@Data
+public class KeyHashingProperties {
+
+  /**
+   * The hash algorithm used by {@link KeyHashing}, one of sha256, murmur3_128, or sipHash24.
+   * The non-cryptographic algorithms are considerably cheaper to compute and their hashes are
+   * tagged with a prefix so they can be told apart from sha256 hashes.
+   */
+  @NotNull
+  Algorithm algorithm = Algorithm.SHA256;
+
+  @NotNull
+  Cache cache = new Cache();
+
+  @Data
+  public static class Cache {
+
+    /**
+     * When enabled, {@link CachingKeyHashing} is registered as the primary {@link KeyHashing}
+     * bean and memoizes the hashes of recently seen keys.
+     */
+    boolean enabled = false;
+
+    /**
+     * The maximum number of keys to retain in the cache.
+     */
+    long maximumSize = 10_000;
+  }
+}
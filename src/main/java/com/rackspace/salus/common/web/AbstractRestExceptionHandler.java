@@ -20,11 +20,15 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.rackspace.salus.common.errors.ResponseMessages;
 import com.rackspace.salus.common.errors.RuntimeKafkaException;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.Map;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +38,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
 
 /**
  * This handler can be used as a base class for
@@ -67,6 +72,15 @@ import org.springframework.web.context.request.ServletWebRequest;
    ...
 
   * </pre>
+ * <p>
+ *   To avoid flooding the logs during an outage, {@link #logRequestFailure} only logs the
+ *   stack traces of the first
+ *   <code>salus.common.web.failure-logging.traces-per-interval</code> (default 10) failures
+ *   of each exception type and URI within each
+ *   <code>salus.common.web.failure-logging.interval</code> (default 1m). The rest are counted
+ *   by the <code>suppressed_request_failure_logs</code> metric and summarized by the next
+ *   failure that is logged. Setting the number of traces to zero logs every failure.
+ * </p>
  */
 @Slf4j
 public abstract class AbstractRestExceptionHandler {
@@ -74,12 +88,28 @@ public abstract class AbstractRestExceptionHandler {
   private static final String SLEUTH_BRAVE_TRACE_ID_HEADER = "x-b3-traceid";
 
   private final ErrorAttributes errorAttributes;
+  private final RequestFailureLogSampler failureLogSampler = new RequestFailureLogSampler();
 
   public AbstractRestExceptionHandler(
       ErrorAttributes errorAttributes) {
     this.errorAttributes = errorAttributes;
   }
 
+  @Value("${salus.common.web.failure-logging.traces-per-interval:10}")
+  public void setFailureLogTracesPerInterval(int tracesPerInterval) {
+    failureLogSampler.setTracesPerInterval(tracesPerInterval);
+  }
+
+  @Value("${salus.common.web.failure-logging.interval:1m}")
+  public void setFailureLogInterval(Duration interval) {
+    failureLogSampler.setInterval(interval);
+  }
+
+  @Autowired(required = false)
+  public void setMeterRegistry(MeterRegistry meterRegistry) {
+    failureLogSampler.setMeterRegistry(meterRegistry);
+  }
+
   protected ResponseEntity<?> respondWith(HttpServletRequest request,
                                           HttpStatus status) {
     return respondWith(request, status, null);
@@ -96,10 +126,18 @@ public abstract class AbstractRestExceptionHandler {
   protected ResponseEntity<?> respondWith(
       HttpServletRequest request,
       HttpStatus status, @Nullable String message) {
-    Map<String, Object> body = getErrorAttributes(request);
     // extract Spring Cloud Sleuth (aka Brave)'s traceId from incoming request headers to avoid
     // pulling dependency into common module
     final String traceId = request.getHeader(SLEUTH_BRAVE_TRACE_ID_HEADER);
+    if (errorAttributes instanceof ExtendedErrorAttributes) {
+      final Map<String, Object> body = ((ExtendedErrorAttributes) errorAttributes)
+          .buildErrorBody(request, status, message, traceId);
+      if (body != null) {
+        return new ResponseEntity<>(body, status);
+      }
+    }
+
+    Map<String, Object> body = getErrorAttributes(request);
     if (traceId != null) {
       body.put("traceId", traceId);
     }
@@ -117,7 +155,25 @@ public abstract class AbstractRestExceptionHandler {
    * @param e the {@link Exception} that was thrown while handling the request
    */
   protected void logRequestFailure(HttpServletRequest request, Exception e) {
-    log.warn("Web request for uri={} failed", request.getRequestURI(), e);
+    final long suppressed = failureLogSampler.sample(e.getClass(), getUriPattern(request));
+    if (suppressed == RequestFailureLogSampler.SUPPRESS) {
+      return;
+    }
+    if (suppressed > 0) {
+      log.warn("Web request for uri={} failed, suppressed={} similar failures since last logged",
+          request.getRequestURI(), suppressed, e);
+    } else {
+      log.warn("Web request for uri={} failed", request.getRequestURI(), e);
+    }
+  }
+
+  /**
+   * @return the matched handler mapping pattern, such as <code>/api/tenant/{tenantId}</code>,
+   * which unlike the request URI is bounded, or the request URI if no handler was matched
+   */
+  private static String getUriPattern(HttpServletRequest request) {
+    final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return pattern instanceof String ? (String) pattern : request.getRequestURI();
   }
 
   private Map<String, Object> getErrorAttributes(HttpServletRequest request) {
@@ -17,6 +17,8 @@
 package com.rackspace.salus.common.web;
 
 import com.rackspace.salus.common.config.RoleProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -25,7 +27,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.NullSecurityContextRepository;
 import org.springframework.security.web.firewall.DefaultHttpFirewall;
 import org.springframework.security.web.firewall.HttpFirewall;
 
@@ -37,12 +41,22 @@ import org.springframework.security.web.firewall.HttpFirewall;
  */
 @Configuration
 @EnableWebSecurity
-@EnableConfigurationProperties(RoleProperties.class)
+@EnableConfigurationProperties({RoleProperties.class, WebSecurityProperties.class})
 @Slf4j
 public class BackendServicesWebSecurityConfig extends WebSecurityConfigurerAdapter {
 
-  @Autowired
+  private final WebSecurityProperties webSecurityProperties;
+  private final MeterRegistry meterRegistry;
+
   public BackendServicesWebSecurityConfig() {
+    this(new WebSecurityProperties(), Optional.empty());
+  }
+
+  @Autowired
+  public BackendServicesWebSecurityConfig(WebSecurityProperties webSecurityProperties,
+                                          Optional<MeterRegistry> meterRegistry) {
+    this.webSecurityProperties = webSecurityProperties;
+    this.meterRegistry = meterRegistry.orElse(null);
   }
 
   /**
@@ -61,11 +75,26 @@ public class BackendServicesWebSecurityConfig extends WebSecurityConfigurerAdapt
     http
         .csrf().disable()
         .addFilterBefore(
-            new ReposeHeaderFilter(false),
+            new ReposeHeaderFilter(false, webSecurityProperties, meterRegistry),
             BasicAuthenticationFilter.class)
         .authorizeRequests()
         .antMatchers("/api/**")
         .permitAll();
+
+    if (webSecurityProperties.isStateless()) {
+      log.debug("Configuring stateless tenant web security");
+      // the anonymous filter is retained since it never creates a session and requests without
+      // roles must still be authorized and given the anonymous json view
+      http
+          .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+          .and()
+          .securityContext().securityContextRepository(new NullSecurityContextRepository())
+          .and()
+          .requestCache().disable()
+          .headers().disable()
+          .servletApi().disable()
+          .logout().disable();
+    }
   }
 
   /**
@@ -26,7 +26,8 @@ import org.springframework.context.annotation.Import;
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
-@Import({BackendServicesWebSecurityConfig.class, RoleBasedJsonViewControllerAdvice.class})
+@Import({BackendServicesWebSecurityConfig.class, RoleBasedViewResolver.class,
+    RoleBasedJsonViewControllerAdvice.class, RoleBasedJsonViewConverterConfig.class})
 public @interface EnableRoleBasedJsonViews {
 
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.boot.web.servlet.error.DefaultErrorAttributes;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Augments the standard error attributes with the <code>app</code> and <code>host</code> of
+ * this application, as registered by {@link ExtendedErrorAttributesConfig}.
+ * <p>
+ *   {@link AbstractRestExceptionHandler} replaces the status, error, and message of the
+ *   standard attributes anyway, so it uses {@link #buildErrorBody} to build the same body
+ *   directly from the handled exception rather than deriving and then overwriting each of the
+ *   standard attributes.
+ * </p>
+ */
+public class ExtendedErrorAttributes extends DefaultErrorAttributes {
+
+  private static final String NO_MESSAGE = "No message available";
+
+  private final String appName;
+  private final String ourHost;
+
+  public ExtendedErrorAttributes(boolean includeException, String appName, String ourHost) {
+    super(includeException);
+    this.appName = appName;
+    this.ourHost = ourHost;
+  }
+
+  @Override
+  public Map<String, Object> getErrorAttributes(WebRequest webRequest,
+                                                boolean includeStackTrace) {
+    final Map<String, Object> errorAttributes = super
+        .getErrorAttributes(webRequest, includeStackTrace);
+
+    errorAttributes.put("app", appName);
+    errorAttributes.put("host", ourHost);
+
+    return errorAttributes;
+  }
+
+  /**
+   * Builds the same response body, with the same order of fields, as
+   * {@link #getErrorAttributes(WebRequest, boolean)} followed by replacing the status, error,
+   * and message. Like that method, the <code>exception</code> field is included regardless of
+   * the <code>includeException</code> setting.
+   * @param message if not null, replaces the message of the handled exception
+   * @param traceId if not null, is added as the <code>traceId</code> field
+   * @return the response body or null if the request is an error dispatch or the exception
+   * has a {@link BindingResult}, for which the standard attributes need to be used
+   */
+  @Nullable
+  Map<String, Object> buildErrorBody(HttpServletRequest request, HttpStatus status,
+                                     @Nullable String message, @Nullable String traceId) {
+    if (request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE) != null
+        || request.getAttribute(RequestDispatcher.ERROR_MESSAGE) != null
+        || request.getAttribute(RequestDispatcher.ERROR_REQUEST_URI) != null) {
+      return null;
+    }
+
+    Throwable error = getError(new ServletWebRequest(request));
+    while (error instanceof ServletException && error.getCause() != null) {
+      error = error.getCause();
+    }
+    if (error instanceof BindingResult || error instanceof MethodArgumentNotValidException) {
+      return null;
+    }
+
+    final Map<String, Object> body = new LinkedHashMap<>(16);
+    body.put("timestamp", new Date());
+    body.put("status", status.value());
+    body.put("error", status.getReasonPhrase());
+    if (error != null) {
+      // the deprecated getErrorAttributes always includes the exception, unlike the
+      // ErrorAttributeOptions variant that applies the includeException setting
+      body.put("exception", error.getClass().getName());
+    }
+    if (message == null) {
+      message = error != null ? error.getMessage() : null;
+      if (!StringUtils.hasLength(message)) {
+        message = NO_MESSAGE;
+      }
+    }
+    body.put("message", message);
+    body.put("app", appName);
+    body.put("host", ourHost);
+    if (traceId != null) {
+      body.put("traceId", traceId);
+    }
+    return body;
+  }
+}
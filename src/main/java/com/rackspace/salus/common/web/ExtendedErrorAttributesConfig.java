@@ -16,18 +16,15 @@
 
 package com.rackspace.salus.common.web;
 
-import java.util.Map;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.boot.web.servlet.error.DefaultErrorAttributes;
 import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.context.request.WebRequest;
 
 /**
- * When <code>&#64;Import</code>ed, this will register an {@link ErrorAttributes} bean
+ * When <code>&#64;Import</code>ed, this will register an {@link ExtendedErrorAttributes} bean
  * that augments the standard response content with:
  * <ul>
  *   <li><code>app</code> : the value of the <code>spring.application.name</code> property</li>
@@ -52,18 +49,7 @@ public class ExtendedErrorAttributesConfig {
   public ErrorAttributes errorAttributes(ServerProperties serverProperties,
                                          @Value("${spring.application.name}") String appName,
                                          @Value("${localhost.name}") String ourHost) {
-    return new DefaultErrorAttributes(serverProperties.getError().isIncludeException()) {
-      @Override
-      public Map<String, Object> getErrorAttributes(WebRequest webRequest,
-                                                    boolean includeStackTrace) {
-        final Map<String, Object> errorAttributes = super
-            .getErrorAttributes(webRequest, includeStackTrace);
-
-        errorAttributes.put("app", appName);
-        errorAttributes.put("host", ourHost);
-
-        return errorAttributes;
-      }
-    };
+    return new ExtendedErrorAttributes(serverProperties.getError().isIncludeException(),
+        appName, ourHost);
   }
 }
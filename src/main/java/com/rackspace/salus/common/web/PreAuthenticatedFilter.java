@@ -16,44 +16,50 @@
 
 package com.rackspace.salus.common.web;
 
-import static java.util.stream.Collectors.toList;
-
+import com.rackspace.salus.common.web.WebSecurityProperties.TokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import javax.annotation.Nullable;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
 
 /**
  * This is a general purpose Spring Security filter which translates the given tenant/user and roles
  * headers into the equivalent values in a {@link PreAuthenticatedToken}
+ * <p>
+ *   The translation itself is performed by {@link PreAuthenticatedTokenResolver}.
+ * </p>
  */
 @Slf4j
 public class PreAuthenticatedFilter extends GenericFilterBean {
 
-  // some requests don't come through with a `tenantHeader` to validate
-  // but do have a list of tenants to log for audit purposes.
-  private final static String EXTRA_TENANT_HEADER = "X-Tenant-Id";
-
-  private final String tenantHeader;
-  private final List<String> rolesHeaders;
-  private final boolean requireTenantId;
+  private final PreAuthenticatedTokenResolver tokenResolver;
 
   public PreAuthenticatedFilter(String tenantHeader, List<String> rolesHeaders, boolean requireTenantId) {
-    this.tenantHeader = tenantHeader;
-    this.rolesHeaders = rolesHeaders;
-    this.requireTenantId = requireTenantId;
+    this(tenantHeader, rolesHeaders, requireTenantId, null, null);
+  }
+
+  /**
+   * @param tokenCache when given and enabled, configures the caching of translated authorities
+   * @param meterRegistry when given, registers the outcome counters and the metrics of the
+   * token cache
+   */
+  public PreAuthenticatedFilter(String tenantHeader, List<String> rolesHeaders, boolean requireTenantId,
+                                @Nullable TokenCache tokenCache, @Nullable MeterRegistry meterRegistry) {
+    this(new PreAuthenticatedTokenResolver(
+        tenantHeader, rolesHeaders, requireTenantId, tokenCache, meterRegistry));
+  }
+
+  public PreAuthenticatedFilter(PreAuthenticatedTokenResolver tokenResolver) {
+    this.tokenResolver = tokenResolver;
   }
 
   @Override
@@ -72,41 +78,6 @@ public class PreAuthenticatedFilter extends GenericFilterBean {
   }
 
   Optional<PreAuthenticatedToken> getToken(HttpServletRequest req) {
-    log.debug("Getting PreAuthenticatedToken for request");
-    final Set<String> rolesSet = new HashSet<>();
-    for (String header : rolesHeaders) {
-      String roleString = req.getHeader(header);
-      if (roleString != null) {
-        List<String> roleValues = Arrays.asList(roleString.split(","));
-        rolesSet.addAll(roleValues);
-      }
-    }
-    final String tenant = req.getHeader(tenantHeader);
-    final String tenantList = req.getHeader(EXTRA_TENANT_HEADER);
-    log.trace("Found tenant {} with roles {} while authenticating", tenant, rolesSet);
-
-    if (requireTenantId && !StringUtils.hasText(tenant)) {
-      log.debug("Failed PreAuthenticatedToken creation due to missing {} header."
-          + " {}={}, roles={}", tenantHeader, EXTRA_TENANT_HEADER, tenantList, rolesSet);
-      return Optional.empty();
-    }
-
-    if (!rolesSet.isEmpty()) {
-      final List<SimpleGrantedAuthority> roles = rolesSet.stream()
-          .map(role ->
-              role
-                  .replace(':', '_')
-                  .replace('-', '_')
-                  .toUpperCase()
-          )
-          .map(a -> new SimpleGrantedAuthority("ROLE_" + a))
-          .collect(toList());
-
-      return Optional.of(new PreAuthenticatedToken(tenant, roles));
-    } else {
-      log.debug("Failed PreAuthenticatedToken creation due to empty roles list."
-          + " tenant={}, roles={}", tenant, rolesSet);
-      return Optional.empty();
-    }
+    return tokenResolver.resolve(req::getHeader);
   }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.MetricTags;
+import com.rackspace.salus.common.web.WebSecurityProperties.TokenCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.StringUtils;
+
+/**
+ * Translates the given tenant/user and roles headers of a request into the equivalent values in a
+ * {@link PreAuthenticatedToken}. Headers are accessed through a lookup function, so this is shared
+ * by the servlet {@link PreAuthenticatedFilter} and the reactive security context repository.
+ * <p>
+ *   Since this runs in front of every API call, the comma-separated roles headers are
+ *   tokenized in a single pass and the resulting authorities are interned by
+ *   {@link RoleAuthorities}, which keeps allocation per request to a minimum.
+ * </p>
+ * <p>
+ *   When the {@link TokenCache token cache} is enabled, the immutable authorities translated
+ *   for each distinct combination of roles header values are cached, so repeat requests skip
+ *   the translation entirely. The tenant header is not part of the cache key since it does
+ *   not affect the authorities. When a {@link MeterRegistry} is given, the cache's hits,
+ *   misses, and evictions are reported as the <code>pre_authenticated_roles</code> cache.
+ * </p>
+ * <p>
+ *   When a {@link MeterRegistry} is given, each outcome is counted by a
+ *   <code>pre_authenticated_requests</code> counter, all of which are registered up front so
+ *   that resolving a token only increments one. Timing every request would cost more than the
+ *   resolution itself, so only a random sample of requests is timed and only when a
+ *   timer sampling interval is given.
+ * </p>
+ */
+@Slf4j
+public class PreAuthenticatedTokenResolver {
+
+  // some requests don't come through with a `tenantHeader` to validate
+  // but do have a list of tenants to log for audit purposes.
+  private final static String EXTRA_TENANT_HEADER = "X-Tenant-Id";
+
+  private final String tenantHeader;
+  private final List<String> rolesHeaders;
+  private final boolean requireTenantId;
+  private final RoleAuthorities roleAuthorities = new RoleAuthorities();
+
+  private final Cache<RolesKey, List<SimpleGrantedAuthority>> rolesCache;
+
+  private final Counter authenticatedCounter;
+  private final Counter missingTenantCounter;
+  private final Counter noRolesCounter;
+  private final Timer resolveTimer;
+  private final int timerSamplingInterval;
+
+  public PreAuthenticatedTokenResolver(String tenantHeader, List<String> rolesHeaders,
+                                       boolean requireTenantId) {
+    this(tenantHeader, rolesHeaders, requireTenantId, null, null);
+  }
+
+  /**
+   * @param tokenCache when given and enabled, configures the caching of translated authorities
+   * @param meterRegistry when given, registers the outcome counters and the metrics of the
+   * token cache
+   */
+  public PreAuthenticatedTokenResolver(String tenantHeader, List<String> rolesHeaders,
+                                       boolean requireTenantId, @Nullable TokenCache tokenCache,
+                                       @Nullable MeterRegistry meterRegistry) {
+    this(tenantHeader, rolesHeaders, requireTenantId, tokenCache, 0, meterRegistry);
+  }
+
+  /**
+   * @param tokenCache when given and enabled, configures the caching of translated authorities
+   * @param timerSamplingInterval when greater than zero and a meter registry is given, one of
+   * every this many resolutions, chosen at random, is timed
+   * @param meterRegistry when given, registers the outcome counters and the metrics of the
+   * token cache
+   */
+  public PreAuthenticatedTokenResolver(String tenantHeader, List<String> rolesHeaders,
+                                       boolean requireTenantId, @Nullable TokenCache tokenCache,
+                                       int timerSamplingInterval,
+                                       @Nullable MeterRegistry meterRegistry) {
+    this.tenantHeader = tenantHeader;
+    this.rolesHeaders = rolesHeaders;
+    this.requireTenantId = requireTenantId;
+
+    if (tokenCache != null && tokenCache.isEnabled()) {
+      rolesCache = CacheBuilder.newBuilder()
+          .maximumSize(tokenCache.getMaximumSize())
+          .expireAfterWrite(tokenCache.getExpireAfterWrite().toNanos(), TimeUnit.NANOSECONDS)
+          .recordStats()
+          .build();
+      if (meterRegistry != null) {
+        GuavaCacheMetrics.monitor(meterRegistry, rolesCache, "pre_authenticated_roles");
+      }
+    } else {
+      rolesCache = null;
+    }
+
+    if (meterRegistry != null) {
+      authenticatedCounter = outcomeCounter(meterRegistry, "authenticated");
+      missingTenantCounter = outcomeCounter(meterRegistry, "missing_tenant");
+      noRolesCounter = outcomeCounter(meterRegistry, "no_roles");
+    } else {
+      authenticatedCounter = null;
+      missingTenantCounter = null;
+      noRolesCounter = null;
+    }
+
+    if (meterRegistry != null && timerSamplingInterval > 0) {
+      resolveTimer = Timer.builder(MetricNames.PRE_AUTHENTICATED_RESOLVE_DURATION)
+          .description("Sampled time taken to translate the headers of a request into a token")
+          .register(meterRegistry);
+      this.timerSamplingInterval = timerSamplingInterval;
+    } else {
+      resolveTimer = null;
+      this.timerSamplingInterval = 0;
+    }
+  }
+
+  private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder(MetricNames.PRE_AUTHENTICATED_REQUESTS)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, outcome)
+        .register(meterRegistry);
+  }
+
+  /**
+   * @param headers provides the value of the given request header or null if not present
+   * @return the token for the request or empty if the required headers were not present
+   */
+  public Optional<PreAuthenticatedToken> resolve(Function<String, String> headers) {
+    if (resolveTimer != null
+        && ThreadLocalRandom.current().nextInt(timerSamplingInterval) == 0) {
+      final long start = System.nanoTime();
+      try {
+        return resolveToken(headers, true);
+      } finally {
+        resolveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    }
+    return resolveToken(headers, true);
+  }
+
+  /**
+   * The same as {@link #resolve(Function)}, but is neither counted nor timed, which is for
+   * resolving the token of a request again after it was already resolved by
+   * {@link #resolve(Function)}.
+   * @param headers provides the value of the given request header or null if not present
+   * @return the token for the request or empty if the required headers were not present
+   */
+  public Optional<PreAuthenticatedToken> resolveAgain(Function<String, String> headers) {
+    return resolveToken(headers, false);
+  }
+
+  private Optional<PreAuthenticatedToken> resolveToken(Function<String, String> headers,
+                                                       boolean counted) {
+    log.debug("Getting PreAuthenticatedToken for request");
+    final String[] roleValues = new String[rolesHeaders.size()];
+    for (int i = 0; i < roleValues.length; i++) {
+      roleValues[i] = headers.apply(rolesHeaders.get(i));
+    }
+    final List<SimpleGrantedAuthority> roles =
+        rolesCache != null ? getCachedRoles(roleValues) : getRoles(roleValues);
+    final String tenant = headers.apply(tenantHeader);
+    final String tenantList = headers.apply(EXTRA_TENANT_HEADER);
+    log.trace("Found tenant {} with roles {} while authenticating", tenant, roles);
+
+    if (requireTenantId && !StringUtils.hasText(tenant)) {
+      log.debug("Failed PreAuthenticatedToken creation due to missing {} header."
+          + " {}={}, roles={}", tenantHeader, EXTRA_TENANT_HEADER, tenantList, roles);
+      increment(counted ? missingTenantCounter : null);
+      return Optional.empty();
+    }
+
+    if (!roles.isEmpty()) {
+      increment(counted ? authenticatedCounter : null);
+      return Optional.of(new PreAuthenticatedToken(tenant, roles));
+    } else {
+      log.debug("Failed PreAuthenticatedToken creation due to empty roles list."
+          + " tenant={}, roles={}", tenant, roles);
+      increment(counted ? noRolesCounter : null);
+      return Optional.empty();
+    }
+  }
+
+  private static void increment(@Nullable Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  private List<SimpleGrantedAuthority> getCachedRoles(String[] roleValues) {
+    final RolesKey key = new RolesKey(roleValues);
+    List<SimpleGrantedAuthority> roles = rolesCache.getIfPresent(key);
+    if (roles == null) {
+      roles = Collections.unmodifiableList(getRoles(roleValues));
+      rolesCache.put(key, roles);
+    }
+    return roles;
+  }
+
+  private List<SimpleGrantedAuthority> getRoles(String[] roleValues) {
+    final List<SimpleGrantedAuthority> roles = new ArrayList<>();
+    for (String roleString : roleValues) {
+      if (roleString != null) {
+        addRoles(roleString, roles);
+      }
+    }
+    return roles;
+  }
+
+  /**
+   * Tokenizes a comma-separated roles header value, ignoring surrounding whitespace and empty
+   * entries, and adds the authority of each role that is not already present.
+   */
+  private void addRoles(String value, List<SimpleGrantedAuthority> roles) {
+    final int length = value.length();
+    int start = 0;
+    while (start < length) {
+      int end = value.indexOf(',', start);
+      if (end < 0) {
+        end = length;
+      }
+      final int next = end + 1;
+
+      while (start < end && isWhitespace(value.charAt(start))) {
+        start++;
+      }
+      while (end > start && isWhitespace(value.charAt(end - 1))) {
+        end--;
+      }
+      if (start < end) {
+        final SimpleGrantedAuthority authority =
+            roleAuthorities.authorityFor(value, start, end);
+        // interned duplicates are the same instance, so this is usually an identity check
+        if (!roles.contains(authority)) {
+          roles.add(authority);
+        }
+      }
+      start = next;
+    }
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t';
+  }
+
+  /**
+   * The raw values of the roles headers, where equality is based on the contents of the values.
+   */
+  private static class RolesKey {
+    final String[] values;
+    final int hashCode;
+
+    RolesKey(String[] values) {
+      this.values = values;
+      this.hashCode = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof RolesKey && Arrays.equals(values, ((RolesKey) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.rackspace.salus.common.web.RemoteServiceProperties.CircuitBreaker;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A count-based circuit breaker for the calls to one remote service.
+ * <p>
+ *   While closed, the outcomes of the most recent calls are retained and the circuit opens
+ *   once their failure or slow call rate reaches its threshold. While open, calls are not
+ *   permitted until the configured wait has passed, after which the circuit is half-open and
+ *   permits a limited number of probing calls. The rates of those probing calls determine if
+ *   the circuit closes or opens again.
+ * </p>
+ * <p>
+ *   Checking if a call is permitted only reads the current state, except for the transition
+ *   out of the open state. Recording outcomes is synchronized, which is negligible compared to
+ *   the remote call itself.
+ * </p>
+ */
+@Slf4j
+class RemoteCircuitBreaker {
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private static final byte FAILED = 1;
+  private static final byte SLOW = 2;
+
+  private final String remoteServiceName;
+  private final CircuitBreaker properties;
+  private final long slowCallNanos;
+  private final long waitInOpenNanos;
+  private final LongSupplier nanoTime;
+
+  private volatile State state = State.CLOSED;
+  private volatile long openedAt;
+  private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+  // guarded by this
+  private final byte[] outcomes;
+  private int next;
+  private int calls;
+  private int failedCalls;
+  private int slowCalls;
+
+  RemoteCircuitBreaker(String remoteServiceName, CircuitBreaker properties,
+                       LongSupplier nanoTime) {
+    this.remoteServiceName = remoteServiceName;
+    this.properties = properties;
+    this.slowCallNanos = properties.getSlowCallDuration().toNanos();
+    this.waitInOpenNanos = properties.getWaitDurationInOpenState().toNanos();
+    this.nanoTime = nanoTime;
+    this.outcomes = new byte[Math.max(properties.getSlidingWindowSize(), 1)];
+  }
+
+  State getState() {
+    return state;
+  }
+
+  /**
+   * @return true if a call is permitted, in which case its outcome must be given to
+   * {@link #onResult(long, boolean)} or, if cancelled, {@link #onCancelled()}
+   */
+  boolean tryAcquirePermission() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (nanoTime.getAsLong() - openedAt < waitInOpenNanos) {
+          return false;
+        }
+        toHalfOpen();
+        return tryAcquireHalfOpenPermit();
+      default:
+        return tryAcquireHalfOpenPermit();
+    }
+  }
+
+  private boolean tryAcquireHalfOpenPermit() {
+    int permits;
+    do {
+      permits = halfOpenPermits.get();
+      if (permits <= 0) {
+        return false;
+      }
+    } while (!halfOpenPermits.compareAndSet(permits, permits - 1));
+    return true;
+  }
+
+  /**
+   * @param durationNanos how long the call took
+   * @param failed true if the call failed in a way that indicates the remote service is
+   * unhealthy
+   */
+  synchronized void onResult(long durationNanos, boolean failed) {
+    if (state == State.OPEN) {
+      // started before the circuit opened
+      return;
+    }
+
+    final byte outcome = (byte) ((failed ? FAILED : 0)
+        | (durationNanos >= slowCallNanos ? SLOW : 0));
+    record(outcome);
+
+    if (state == State.HALF_OPEN) {
+      if (calls >= Math.min(properties.getPermittedNumberOfCallsInHalfOpenState(),
+          outcomes.length)) {
+        if (overThreshold()) {
+          toOpen();
+        } else {
+          log.info("Closing circuit breaker of remoteService={}", remoteServiceName);
+          state = State.CLOSED;
+          reset();
+        }
+      }
+    } else if (calls >= properties.getMinimumNumberOfCalls() && overThreshold()) {
+      toOpen();
+    }
+  }
+
+  /**
+   * Releases the permission of a call whose outcome is not recorded, such as the cancelled,
+   * losing attempt of a hedged call, so that it does not use up a probing call.
+   */
+  void onCancelled() {
+    if (state == State.HALF_OPEN) {
+      halfOpenPermits.incrementAndGet();
+    }
+  }
+
+    private void record(byte outcome) {
+    if (calls == outcomes.length) {
+      // evict the oldest outcome
+      final byte evicted = outcomes[next];
+      calls--;
+      if ((evicted & FAILED) != 0) {
+        failedCalls--;
+      }
+      if ((evicted & SLOW) != 0) {
+        slowCalls--;
+      }
+    }
+    outcomes[next] = outcome;
+    next = (next + 1) % outcomes.length;
+    calls++;
+    if ((outcome & FAILED) != 0) {
+      failedCalls++;
+    }
+    if ((outcome & SLOW) != 0) {
+      slowCalls++;
+    }
+  }
+
+  private boolean overThreshold() {
+    return failedCalls * 100 >= properties.getFailureRateThreshold() * calls
+        || slowCalls * 100 >= properties.getSlowCallRateThreshold() * calls;
+  }
+
+  private void toOpen() {
+    log.warn("Opening circuit breaker of remoteService={} with failedCalls={} slowCalls={} of calls={}",
+        remoteServiceName, failedCalls, slowCalls, calls);
+    openedAt = nanoTime.getAsLong();
+    state = State.OPEN;
+    reset();
+  }
+
+  private synchronized void toHalfOpen() {
+    if (state == State.OPEN) {
+      log.info("Probing remoteService={} with half-open circuit breaker", remoteServiceName);
+      reset();
+      halfOpenPermits.set(properties.getPermittedNumberOfCallsInHalfOpenState());
+      state = State.HALF_OPEN;
+    }
+  }
+
+  private void reset() {
+    next = 0;
+    calls = 0;
+    failedCalls = 0;
+    slowCalls = 0;
+  }
+}
@@ -16,15 +16,63 @@
 
 package com.rackspace.salus.common.web;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.slf4j.MDC;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * Provides utilities for remote service call operations.
+ * <p>
+ *   When configured by {@link EnableRemoteOperations}, calls are subject to the circuit
+ *   breaker and bulkhead of their remote service, as described by
+ *   {@link RemoteServiceProperties}. When a MeterRegistry is also available, the duration of
+ *   each call is recorded by the <code>remote_operation_duration</code> timer tagged by the
+ *   service and outcome.
+ * </p>
+ * <p>
+ *   The asynchronous variants run on a bounded executor, which is configured by
+ *   {@link EnableRemoteOperations} or, otherwise, uses the defaults of
+ *   {@link RemoteOperationsProperties}.
+ * </p>
  */
 public class RemoteOperations {
 
+  private static final boolean securityPresent = ClassUtils.isPresent(
+      "org.springframework.security.core.context.SecurityContextHolder",
+      RemoteOperations.class.getClassLoader());
+
+  private static volatile Executor asyncExecutor;
+  private static volatile Executor hedgingExecutor;
+  private static final Function<String, RemoteServicePolicy> defaultPolicyFactory =
+      remoteServiceName ->
+          new RemoteServicePolicy(remoteServiceName, new RemoteServiceProperties());
+
+  private static volatile Map<String, RemoteServicePolicy> servicePolicies = Map.of();
+  private static volatile Function<String, RemoteServicePolicy> unconfiguredPolicyFactory =
+      defaultPolicyFactory;
+  // created on demand for the services that are not configured
+  private static final ConcurrentMap<String, RemoteServicePolicy> unconfiguredPolicies =
+      new ConcurrentHashMap<>();
+
   /**
    * Wraps a use of {@link RestTemplate} with standardized exception handling of
    * {@link IllegalArgumentException} and {@link RestClientException}.
@@ -49,9 +97,68 @@ public class RemoteOperations {
    * @return the value returned by the wrapped supplier
    */
   public static <R> R mapRestClientExceptions(String remoteServiceName, Supplier<R> wrapped) {
+    final RemoteServicePolicy policy = getPolicy(remoteServiceName);
+    return mapExceptions(remoteServiceName, policy, () -> policy.execute(wrapped));
+  }
+
+  /**
+   * The same as {@link #mapRestClientExceptions(String, Supplier)}, but also retries the
+   * wrapped code when it fails with a bad gateway, service unavailable, or gateway timeout
+   * status or an I/O error, such as a connection reset. This must only be used for
+   * idempotent operations, such as a GET, since the remote service may have already
+   * processed a failed attempt.
+   * <p>
+   *   Each retry waits for a random duration up to an exponentially increasing backoff.
+   *   To avoid amplifying the load on an overloaded service, retries are limited to a budget
+   *   that only refills as calls are made. The number of attempts, backoff, and budget of each
+   *   service are configured by {@link RemoteServiceProperties.Retry}.
+   * </p>
+   * @param remoteServiceName the name of the remote service being called
+   * @param wrapped the code making use of {@link RestTemplate}
+   * @param <R> the return type of the wrapped supplier
+   * @return the value returned by the wrapped supplier
+   */
+  public static <R> R mapRestClientExceptionsWithRetries(String remoteServiceName,
+                                                         Supplier<R> wrapped) {
+    final RemoteServicePolicy policy = getPolicy(remoteServiceName);
+    return mapExceptions(remoteServiceName, policy, () -> policy.executeWithRetries(wrapped));
+  }
+
+  /**
+   * The same as {@link #mapRestClientExceptions(String, Supplier)}, but when the wrapped code
+   * has not completed within the hedge delay, it is run a second time concurrently and the
+   * result of whichever attempt completes first is used. The other attempt is then cancelled,
+   * which interrupts it. This reduces the tail latency of calls to a service where occasional
+   * calls are slow, but must only be used for idempotent operations, such as a GET.
+   * <p>
+   *   The attempts run with the security context and MDC of the calling thread on their own
+   *   executor, which is separate from that of
+   *   {@link #mapRestClientExceptionsAsync(String, Supplier)} so that hedging from within an
+   *   asynchronous call cannot wait on attempts queued behind it. That executor does not queue
+   *   attempts: without a free thread, the first attempt runs on the calling thread and no
+   *   hedge is made. The call only fails once every attempt has failed. To bound the
+   *   extra load, hedges are limited to a budget that only refills as calls are made. The delay,
+   *   which may be learned from the latencies of recent calls, and the budget of each service
+   *   are configured by {@link RemoteServiceProperties.Hedge}.
+   * </p>
+   * @param remoteServiceName the name of the remote service being called
+   * @param wrapped the code making use of {@link RestTemplate}
+   * @param <R> the return type of the wrapped supplier
+   * @return the value returned by the wrapped supplier
+   */
+  public static <R> R mapRestClientExceptionsWithHedging(String remoteServiceName,
+                                                         Supplier<R> wrapped) {
+    final RemoteServicePolicy policy = getPolicy(remoteServiceName);
+    final Executor executor = withCallerContext(getHedgingExecutor());
+    return mapExceptions(remoteServiceName, policy,
+        () -> policy.executeWithHedging(wrapped, executor));
+  }
+
+  private static <R> R mapExceptions(String remoteServiceName, RemoteServicePolicy policy,
+                                     Supplier<R> wrapped) {
     try {
 
-      return wrapped.get();
+      return policy.timed(wrapped);
 
     } catch (IllegalArgumentException e) {
       throw new IllegalStateException(
@@ -61,4 +168,218 @@ public class RemoteOperations {
     }
   }
 
+  /**
+   * Asynchronously runs a use of {@link RestTemplate} with the same exception handling as
+   * {@link #mapRestClientExceptions(String, Supplier)}, which allows independent calls to
+   * remote services to overlap rather than run one after the other.
+   * <p>
+   *   The security context and MDC of the calling thread are available to the wrapped code.
+   *   The following shows an example of calling two services concurrently:
+   *   <pre>
+   final CompletableFuture&lt;Policies&gt; policies = mapRestClientExceptionsAsync(
+     "policy-management", () -&gt; restTemplate.getForObject(policiesUri, Policies.class));
+   final CompletableFuture&lt;Monitors&gt; monitors = mapRestClientExceptionsAsync(
+     "monitor-management", () -&gt; restTemplate.getForObject(monitorsUri, Monitors.class));
+
+   return combine(join(policies), join(monitors));
+   *   </pre>
+   * </p>
+   * @param remoteServiceName the name of the remote service being called
+   * @param wrapped the code making use of {@link RestTemplate}
+   * @param <R> the return type of the wrapped supplier
+   * @return a future of the value returned by the wrapped supplier, which is completed
+   * exceptionally with a {@link RemoteServiceCallException} that was not attempted when there
+   * is no capacity left to run the call
+   */
+  public static <R> CompletableFuture<R> mapRestClientExceptionsAsync(
+      String remoteServiceName, Supplier<R> wrapped) {
+    final Supplier<R> withContext =
+        withCallerContext(() -> mapRestClientExceptions(remoteServiceName, wrapped));
+    try {
+      return CompletableFuture.supplyAsync(withContext, getAsyncExecutor());
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(new RemoteServiceCallException(
+          remoteServiceName, "too many remote calls are in progress", e));
+    }
+  }
+
+  /**
+   * Waits for the result of {@link #mapRestClientExceptionsAsync(String, Supplier)}, but
+   * unlike {@link CompletableFuture#join()} throws the exceptions of the wrapped call as is,
+   * so that they are handled the same as those of synchronous calls.
+   * @param future a future returned by {@link #mapRestClientExceptionsAsync(String, Supplier)}
+   * @param <R> the return type of the wrapped supplier
+   * @return the value returned by the wrapped supplier
+   */
+  public static <R> R join(CompletableFuture<R> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Replaces the executor used for asynchronous calls, which is normally done by
+   * {@link RemoteOperationsConfig}.
+   * @param executor the executor to use or null to use the default
+   */
+  static void setAsyncExecutor(@Nullable Executor executor) {
+    asyncExecutor = executor;
+  }
+
+  /**
+   * Replaces the executor used for the attempts of hedged calls, which is normally done by
+   * {@link RemoteOperationsConfig}.
+   * @param executor the executor to use or null to use the default
+   */
+  static void setHedgingExecutor(@Nullable Executor executor) {
+    hedgingExecutor = executor;
+  }
+
+  /**
+   * Replaces the policies of remote services, which is normally done by
+   * {@link RemoteOperationsConfig}.
+   * @param policies the policies by remote service name
+   */
+  static void setServicePolicies(Map<String, RemoteServicePolicy> policies) {
+    setServicePolicies(policies, defaultPolicyFactory);
+  }
+
+  /**
+   * @param policies the policies by remote service name
+   * @param unconfiguredPolicyFactory creates the policies of services that are not configured
+   */
+  static void setServicePolicies(Map<String, RemoteServicePolicy> policies,
+                                 Function<String, RemoteServicePolicy> unconfiguredPolicyFactory) {
+    servicePolicies = policies;
+    RemoteOperations.unconfiguredPolicyFactory = unconfiguredPolicyFactory;
+    unconfiguredPolicies.clear();
+  }
+
+  private static RemoteServicePolicy getPolicy(String remoteServiceName) {
+    final RemoteServicePolicy policy = servicePolicies.get(remoteServiceName);
+    if (policy != null) {
+      return policy;
+    }
+    // the budgets and timers need to be tracked per service even when it is not configured
+    return unconfiguredPolicies.computeIfAbsent(remoteServiceName, unconfiguredPolicyFactory);
+  }
+
+  private static Executor getAsyncExecutor() {
+    final Executor executor = asyncExecutor;
+    return executor != null ? executor : DefaultAsyncExecutor.INSTANCE;
+  }
+
+  private static Executor getHedgingExecutor() {
+    final Executor executor = hedgingExecutor;
+    return executor != null ? executor : DefaultHedgingExecutor.INSTANCE;
+  }
+
+  /**
+   * @return a fixed size pool of daemon threads with a bounded queue, which rejects calls
+   * when both are full
+   */
+  static ThreadPoolExecutor newAsyncExecutor(RemoteOperationsProperties.Async properties) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        properties.getPoolSize(), properties.getPoolSize(),
+        properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(properties.getQueueCapacity()),
+        runnable -> {
+          final Thread thread = new Thread(runnable,
+              "remote-operations-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * @return a pool of daemon threads that are created as needed up to the maximum, which
+   * rejects attempts rather than queueing them when all are busy
+   */
+  static ThreadPoolExecutor newHedgingExecutor(RemoteOperationsProperties.Hedging properties) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadPoolExecutor(
+        0, properties.getMaxPoolSize(),
+        properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+        new SynchronousQueue<>(),
+        runnable -> {
+          final Thread thread = new Thread(runnable,
+              "remote-operations-hedging-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * @return an executor that runs each task with the context of the thread submitting it
+   */
+  private static Executor withCallerContext(Executor executor) {
+    return task -> {
+      final Supplier<Void> withContext = withCallerContext(() -> {
+        task.run();
+        return null;
+      });
+      executor.execute(withContext::get);
+    };
+  }
+
+  private static <R> Supplier<R> withCallerContext(Supplier<R> wrapped) {
+    final Map<String, String> mdc = MDC.getCopyOfContextMap();
+    final Object securityContext = securityPresent ? SecurityContexts.capture() : null;
+    return () -> {
+      if (mdc != null) {
+        MDC.setContextMap(mdc);
+      }
+      if (securityContext != null) {
+        SecurityContexts.restore(securityContext);
+      }
+      try {
+        return wrapped.get();
+      } finally {
+        // the executor's threads are only used for these calls, so there is nothing to restore
+        MDC.clear();
+        if (securityPresent) {
+          SecurityContexts.clear();
+        }
+      }
+    };
+  }
+
+  /**
+   * Isolates the use of Spring Security, which is an optional dependency.
+   */
+  private static class SecurityContexts {
+
+    static Object capture() {
+      return SecurityContextHolder.getContext();
+    }
+
+    static void restore(Object securityContext) {
+      SecurityContextHolder.setContext((SecurityContext) securityContext);
+    }
+
+    static void clear() {
+      SecurityContextHolder.clearContext();
+    }
+  }
+
+  private static class DefaultAsyncExecutor {
+
+    static final ExecutorService INSTANCE =
+        newAsyncExecutor(new RemoteOperationsProperties.Async());
+  }
+
+  private static class DefaultHedgingExecutor {
+
+    static final ExecutorService INSTANCE =
+        newHedgingExecutor(new RemoteOperationsProperties.Hedging());
+  }
+
 }
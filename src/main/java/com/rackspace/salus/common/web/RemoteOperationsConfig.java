@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.validation.ValidationBindHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+/**
+ * Configures the static {@link RemoteOperations} utilities from
+ * {@link RemoteOperationsProperties}. When a {@link MeterRegistry} is available, the executors
+ * of asynchronous calls and of hedged attempts are reported as the
+ * <code>remote_operations</code> and <code>remote_operations_hedging</code> executors.
+ * <p>
+ *   The policies of each remote service are bound from the properties under
+ *   <code>salus.remote.&lt;remoteServiceName&gt;</code>, as described by
+ *   {@link RemoteServiceProperties}, and fail startup when they are not valid.
+ * </p>
+ * <p>
+ *   It is recommended for readability to just use {@link EnableRemoteOperations} instead of
+ *   directly {@link org.springframework.context.annotation.Import}ing this.
+ * </p>
+ */
+@Configuration
+@EnableConfigurationProperties(RemoteOperationsProperties.class)
+@Slf4j
+public class RemoteOperationsConfig implements DisposableBean {
+
+  private final ExecutorService asyncExecutor;
+  private final ExecutorService hedgingExecutor;
+
+  @Autowired
+  public RemoteOperationsConfig(RemoteOperationsProperties properties,
+                                Optional<MeterRegistry> meterRegistry,
+                                Environment environment) {
+    asyncExecutor = monitor(meterRegistry,
+        RemoteOperations.newAsyncExecutor(properties.getAsync()), "remote_operations");
+    RemoteOperations.setAsyncExecutor(asyncExecutor);
+    hedgingExecutor = monitor(meterRegistry,
+        RemoteOperations.newHedgingExecutor(properties.getHedging()),
+        "remote_operations_hedging");
+    RemoteOperations.setHedgingExecutor(hedgingExecutor);
+    log.debug("Configured remote operations with async={} hedging={}",
+        properties.getAsync(), properties.getHedging());
+
+    final Map<String, RemoteServiceProperties> services = bindServiceProperties(environment);
+    final Map<String, RemoteServicePolicy> policies = new HashMap<>();
+    services.forEach((remoteServiceName, serviceProperties) -> {
+      log.debug("Configured remoteService={} with {}", remoteServiceName, serviceProperties);
+      policies.put(remoteServiceName, new RemoteServicePolicy(
+          remoteServiceName, serviceProperties, meterRegistry.orElse(null)));
+    });
+    RemoteOperations.setServicePolicies(Map.copyOf(policies),
+        remoteServiceName -> new RemoteServicePolicy(
+            remoteServiceName, new RemoteServiceProperties(), meterRegistry.orElse(null)));
+  }
+
+  private static ExecutorService monitor(Optional<MeterRegistry> meterRegistry,
+                                         ExecutorService executor, String name) {
+    return meterRegistry
+        .map(registry -> ExecutorServiceMetrics.monitor(registry, executor, name))
+        .orElse(executor);
+  }
+
+  static Map<String, RemoteServiceProperties> bindServiceProperties(Environment environment) {
+    try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
+      return Binder.get(environment)
+          .bind("salus.remote", Bindable.mapOf(String.class, RemoteServiceProperties.class),
+              new ValidationBindHandler(
+                  new SpringValidatorAdapter(validatorFactory.getValidator())))
+          .orElseGet(Map::of);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    RemoteOperations.setAsyncExecutor(null);
+    RemoteOperations.setHedgingExecutor(null);
+    RemoteOperations.setServicePolicies(Map.of());
+    asyncExecutor.shutdown();
+    hedgingExecutor.shutdown();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import java.time.Duration;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("salus.remote-operations")
+@Data
+public class RemoteOperationsProperties {
+
+  @NotNull
+  Async async = new Async();
+
+  @NotNull
+  Hedging hedging = new Hedging();
+
+  @Data
+  public static class Async {
+
+    /**
+     * The number of threads that run the asynchronous remote calls of
+     * {@link RemoteOperations#mapRestClientExceptionsAsync}.
+     */
+    int poolSize = 16;
+
+    /**
+     * The number of asynchronous remote calls that can wait for a thread. Calls beyond
+     * this are failed immediately.
+     */
+    int queueCapacity = 100;
+
+    /**
+     * How long an idle thread is retained.
+     */
+    @NotNull
+    Duration keepAlive = Duration.ofMinutes(1);
+  }
+
+  @Data
+  public static class Hedging {
+
+    /**
+     * The maximum number of threads that run the attempts of
+     * {@link RemoteOperations#mapRestClientExceptionsWithHedging}. Attempts are not queued,
+     * so when all are busy the first attempt runs on the calling thread without a hedge.
+     */
+    int maxPoolSize = 32;
+
+    /**
+     * How long an idle thread is retained.
+     */
+    @NotNull
+    Duration keepAlive = Duration.ofMinutes(1);
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.rackspace.salus.common.web;
 
+import javax.annotation.Nullable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
@@ -28,6 +29,7 @@ import org.springframework.web.client.RestTemplate;
 public class RemoteServiceCallException extends RuntimeException {
 
   private final String remoteServiceName;
+  private final boolean attempted;
 
   /**
    * When a {@link RestClientException} is caught from an invocation of a {@link RestTemplate}
@@ -39,13 +41,39 @@ public class RemoteServiceCallException extends RuntimeException {
   public RemoteServiceCallException(String remoteServiceName, RestClientException cause) {
     super(String.format("Remote call to service %s failed: %s", remoteServiceName, cause.getMessage()), cause);
     this.remoteServiceName = remoteServiceName;
+    this.attempted = true;
+  }
+
+  /**
+   * Indicates that the remote service was not called at all, such as when there was no
+   * capacity left to make the call. These are reported as
+   * {@link HttpStatus#SERVICE_UNAVAILABLE} since the caller can try again later.
+   * @param remoteServiceName the name of the remote service
+   * @param reason describes why the call was not attempted
+   * @param cause the cause, if any, of the call not being attempted
+   */
+  public RemoteServiceCallException(String remoteServiceName, String reason,
+                                    @Nullable Throwable cause) {
+    super(String.format("Remote call to service %s was not attempted: %s", remoteServiceName, reason), cause);
+    this.remoteServiceName = remoteServiceName;
+    this.attempted = false;
   }
 
   public String getRemoteServiceName() {
     return remoteServiceName;
   }
 
+  /**
+   * @return false if the remote service was not called at all
+   */
+  public boolean isAttempted() {
+    return attempted;
+  }
+
   public HttpStatus getStatusCode() {
+    if (!attempted) {
+      return HttpStatus.SERVICE_UNAVAILABLE;
+    }
     if (getCause() instanceof HttpStatusCodeException) {
       return ((HttpStatusCodeException) getCause()).getStatusCode();
     }
@@ -0,0 +1,587 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.MetricTags;
+import com.rackspace.salus.common.web.RemoteServiceProperties.Hedge;
+import com.rackspace.salus.common.web.RemoteServiceProperties.Metrics;
+import com.rackspace.salus.common.web.RemoteServiceProperties.Retry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Applies the configured {@link RemoteServiceProperties policies} of one remote service to
+ * its calls, which fail fast with a {@link RemoteServiceCallException} that was not attempted
+ * when the bulkhead is full or the circuit breaker is open.
+ * <p>
+ *   Idempotent calls can also be retried, where each attempt goes through the bulkhead and
+ *   circuit breaker. When a {@link MeterRegistry} is given, each retry is counted by
+ *   <code>remote_operation_retries</code> and the outcome of each call that needed a retry by
+ *   <code>remote_operation_retry_outcomes</code>.
+ * </p>
+ * <p>
+ *   Idempotent, latency-sensitive calls can instead be hedged, where a second identical
+ *   attempt is started when the first has not completed within the hedge delay and the
+ *   result of whichever completes first is used. Each hedge is counted by
+ *   <code>remote_operation_hedges</code>.
+ * </p>
+ * <p>
+ *   Each call, including any retries or hedges, is timed by
+ *   <code>remote_operation_duration</code> tagged by its {@link CallOutcome}. The timers are
+ *   registered up front, so timing a call only looks up the timer of its outcome.
+ * </p>
+ */
+class RemoteServicePolicy {
+
+  private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
+  /**
+   * The outcome of a call, where the client and server error outcomes also convey the 4xx and
+   * 5xx status class of the response.
+   */
+  enum CallOutcome {
+    SUCCESS("success"),
+    CLIENT_ERROR("client_error"),
+    SERVER_ERROR("server_error"),
+    IO_ERROR("io_error"),
+    /**
+     * Failed fast by the bulkhead or circuit breaker.
+     */
+    NOT_ATTEMPTED("not_attempted"),
+    OTHER_ERROR("other_error");
+
+    private static final CallOutcome[] VALUES = values();
+
+    final String tag;
+
+    CallOutcome(String tag) {
+      this.tag = tag;
+    }
+
+    static CallOutcome of(Throwable e) {
+      if (e instanceof HttpClientErrorException) {
+        return CLIENT_ERROR;
+      } else if (e instanceof HttpServerErrorException) {
+        return SERVER_ERROR;
+      } else if (e instanceof ResourceAccessException) {
+        return IO_ERROR;
+      } else if (e instanceof RemoteServiceCallException
+          && !((RemoteServiceCallException) e).isAttempted()) {
+        return NOT_ATTEMPTED;
+      }
+      return OTHER_ERROR;
+    }
+  }
+
+  private final String remoteServiceName;
+  private final RemoteCircuitBreaker circuitBreaker;
+  private final Semaphore bulkhead;
+  private final long bulkheadWaitNanos;
+  private final LongSupplier nanoTime;
+
+  private final Retry retry;
+  private final CallBudget retryBudget;
+  private final Counter retries;
+  private final Counter succeededAfterRetry;
+  private final Counter failedAfterRetry;
+  private final Counter retryBudgetExhausted;
+
+  private final Hedge hedge;
+  private final CallBudget hedgeBudget;
+  private final LatencyTracker latencies;
+  private final Counter hedges;
+
+  // indexed by CallOutcome ordinal
+  private final Timer[] timers;
+
+  RemoteServicePolicy(String remoteServiceName, RemoteServiceProperties properties) {
+    this(remoteServiceName, properties, null, System::nanoTime);
+  }
+
+  RemoteServicePolicy(String remoteServiceName, RemoteServiceProperties properties,
+                      @Nullable MeterRegistry meterRegistry) {
+    this(remoteServiceName, properties, meterRegistry, System::nanoTime);
+  }
+
+  RemoteServicePolicy(String remoteServiceName, RemoteServiceProperties properties,
+                      @Nullable MeterRegistry meterRegistry, LongSupplier nanoTime) {
+    this.remoteServiceName = remoteServiceName;
+    this.nanoTime = nanoTime;
+    retry = properties.getRetry();
+    retryBudget = new CallBudget(retry.getBudgetRatio(), retry.getBudgetCapacity());
+    hedge = properties.getHedge();
+    hedgeBudget = new CallBudget(hedge.getBudgetRatio(), hedge.getBudgetCapacity());
+    latencies = new LatencyTracker(hedge.getDelayPercentile());
+    if (meterRegistry != null) {
+      retries = Counter.builder(MetricNames.REMOTE_OPERATION_RETRIES)
+          .tag(MetricTags.SERVICE_METRIC_TAG, remoteServiceName)
+          .register(meterRegistry);
+      succeededAfterRetry = retryOutcomeCounter(meterRegistry, "succeeded_after_retry");
+      failedAfterRetry = retryOutcomeCounter(meterRegistry, "failed_after_retry");
+      retryBudgetExhausted = retryOutcomeCounter(meterRegistry, "budget_exhausted");
+      hedges = Counter.builder(MetricNames.REMOTE_OPERATION_HEDGES)
+          .tag(MetricTags.SERVICE_METRIC_TAG, remoteServiceName)
+          .register(meterRegistry);
+      timers = new Timer[CallOutcome.VALUES.length];
+      for (CallOutcome outcome : CallOutcome.VALUES) {
+        timers[outcome.ordinal()] = durationTimer(meterRegistry, properties.getMetrics(), outcome);
+      }
+    } else {
+      retries = null;
+      succeededAfterRetry = null;
+      failedAfterRetry = null;
+      retryBudgetExhausted = null;
+      hedges = null;
+      timers = null;
+    }
+    circuitBreaker = properties.getCircuitBreaker().isEnabled() ?
+        new RemoteCircuitBreaker(remoteServiceName, properties.getCircuitBreaker(), nanoTime)
+        : null;
+    bulkhead = properties.getBulkhead().isEnabled() ?
+        new Semaphore(properties.getBulkhead().getMaxConcurrentCalls()) : null;
+    bulkheadWaitNanos = properties.getBulkhead().getMaxWaitDuration().toNanos();
+  }
+
+  private Counter retryOutcomeCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder(MetricNames.REMOTE_OPERATION_RETRY_OUTCOMES)
+        .tag(MetricTags.SERVICE_METRIC_TAG, remoteServiceName)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, outcome)
+        .register(meterRegistry);
+  }
+
+  private Timer durationTimer(MeterRegistry meterRegistry, Metrics metrics,
+                              CallOutcome outcome) {
+    final double[] percentiles = new double[metrics.getPercentiles().size()];
+    for (int i = 0; i < percentiles.length; i++) {
+      percentiles[i] = metrics.getPercentiles().get(i);
+    }
+    return Timer.builder(MetricNames.REMOTE_OPERATION_DURATION)
+        .description("Time taken by calls to a remote service, including retries and hedges")
+        .tag(MetricTags.SERVICE_METRIC_TAG, remoteServiceName)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, outcome.tag)
+        .publishPercentiles(percentiles)
+        .publishPercentileHistogram(metrics.isPercentileHistogram())
+        .serviceLevelObjectives(metrics.getServiceLevelObjectives().toArray(new Duration[0]))
+        .register(meterRegistry);
+  }
+
+  RemoteCircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Records the duration of the call, which is one of the other execute methods, by the
+   * outcome of the call.
+   */
+  <R> R timed(Supplier<R> call) {
+    if (timers == null) {
+      return call.get();
+    }
+    final long start = nanoTime.getAsLong();
+    CallOutcome outcome = CallOutcome.OTHER_ERROR;
+    try {
+      final R result = call.get();
+      outcome = CallOutcome.SUCCESS;
+      return result;
+    } catch (RuntimeException e) {
+      outcome = CallOutcome.of(e);
+      throw e;
+    } finally {
+      timers[outcome.ordinal()].record(nanoTime.getAsLong() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  <R> R executeWithRetries(Supplier<R> call) {
+    retryBudget.deposit();
+    int attempt = 1;
+    while (true) {
+      try {
+        final R result = execute(call);
+        if (attempt > 1) {
+          increment(succeededAfterRetry);
+        }
+        return result;
+      } catch (RuntimeException e) {
+        if (!isRetryable(e) || attempt >= retry.getMaxAttempts()) {
+          if (attempt > 1) {
+            increment(failedAfterRetry);
+          }
+          throw e;
+        }
+        if (!retryBudget.tryWithdraw()) {
+          increment(retryBudgetExhausted);
+          throw e;
+        }
+        try {
+          backoff(attempt);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+        increment(retries);
+        attempt++;
+      }
+    }
+  }
+
+  /**
+   * @param executor runs the attempts, which must not run them on the calling thread. Since
+   * the caller waits on the attempts once hedged, it should reject attempts rather than queue
+   * them behind other tasks, and especially behind the caller itself.
+   */
+  <R> R executeWithHedging(Supplier<R> call, Executor executor) {
+    hedgeBudget.deposit();
+    final HedgedCall<R> hedgedCall = new HedgedCall<>(call);
+    try {
+      hedgedCall.start(executor);
+    } catch (RejectedExecutionException e) {
+      // no capacity for concurrent attempts, so just make the one
+      return execute(call);
+    }
+
+    try {
+      try {
+        return hedgedCall.outcome.get(getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        if (hedgeBudget.tryWithdraw()) {
+          try {
+            hedgedCall.start(executor);
+            increment(hedges);
+          } catch (RejectedExecutionException rejected) {
+            // keep waiting for the first attempt
+          }
+        }
+        return hedgedCall.outcome.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RemoteServiceCallException(
+          remoteServiceName, "interrupted while waiting for the call", e);
+    } finally {
+      hedgedCall.cancel();
+    }
+  }
+
+  long getHedgeDelayNanos() {
+    final long learned = latencies.getPercentileNanos();
+    return learned >= 0 ? learned : hedge.getDelay().toNanos();
+  }
+
+  /**
+   * Waits for a random duration up to the exponential backoff of the given attempt, which is
+   * known as "full jitter" and spreads out the retries of concurrent callers.
+   */
+  private void backoff(int attempt) throws InterruptedException {
+    final double backoff = Math.min(
+        retry.getInitialBackoff().toNanos()
+            * Math.pow(retry.getBackoffMultiplier(), attempt - 1),
+        retry.getMaxBackoff().toNanos());
+    if (backoff >= 1) {
+      TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong((long) backoff + 1));
+    }
+  }
+
+  <R> R execute(Supplier<R> call) {
+    return execute(call, NOT_CANCELLED);
+  }
+
+  /**
+   * @param cancelled indicates if the call was cancelled, in which case its outcome is not
+   * recorded by the circuit breaker
+   */
+  private <R> R execute(Supplier<R> call, BooleanSupplier cancelled) {
+    if (bulkhead == null) {
+      return executeWithCircuitBreaker(call, cancelled);
+    }
+    acquireBulkhead();
+    try {
+      return executeWithCircuitBreaker(call, cancelled);
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  private <R> R executeWithCircuitBreaker(Supplier<R> call, BooleanSupplier cancelled) {
+    if (circuitBreaker == null) {
+      return call.get();
+    }
+    if (!circuitBreaker.tryAcquirePermission()) {
+      throw new RemoteServiceCallException(remoteServiceName, "circuit breaker is open", null);
+    }
+
+    final long start = nanoTime.getAsLong();
+    boolean failed = false;
+    try {
+      return call.get();
+    } catch (RuntimeException e) {
+      failed = isFailure(e);
+      throw e;
+    } finally {
+      if (cancelled.getAsBoolean()) {
+        // the interrupted, losing attempt of a hedged call says nothing about the service
+        circuitBreaker.onCancelled();
+      } else {
+        circuitBreaker.onResult(nanoTime.getAsLong() - start, failed);
+      }
+    }
+  }
+
+  private void acquireBulkhead() {
+    final boolean acquired;
+    if (bulkheadWaitNanos > 0) {
+      try {
+        acquired = bulkhead.tryAcquire(bulkheadWaitNanos, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RemoteServiceCallException(
+            remoteServiceName, "interrupted while waiting for a concurrent call", e);
+      }
+    } else {
+      acquired = bulkhead.tryAcquire();
+    }
+    if (!acquired) {
+      throw new RemoteServiceCallException(
+          remoteServiceName, "too many concurrent calls are in progress", null);
+    }
+  }
+
+  /**
+   * @return true if the exception indicates the remote service is unhealthy, where client
+   * error statuses are the fault of the caller instead
+   */
+  static boolean isFailure(RuntimeException e) {
+    return e instanceof RestClientException && !(e instanceof HttpClientErrorException);
+  }
+
+  /**
+   * @return true if the exception indicates a transient failure of the remote service, or of
+   * the path to it, that is likely to succeed if tried again. Calls that were not attempted,
+   * such as due to an open circuit breaker, are not retried.
+   */
+  static boolean isRetryable(RuntimeException e) {
+    if (e instanceof HttpStatusCodeException) {
+      final int status = ((HttpStatusCodeException) e).getRawStatusCode();
+      return status == 502 || status == 503 || status == 504;
+    }
+    // I/O errors, such as connection resets
+    return e instanceof ResourceAccessException;
+  }
+
+  /**
+   * The attempts of one hedged call, where the first attempt to succeed completes the outcome.
+   * The outcome fails only once every attempt started so far has failed.
+   */
+  private class HedgedCall<R> {
+
+    final Supplier<R> call;
+    final CompletableFuture<R> outcome = new CompletableFuture<>();
+    final List<FutureTask<R>> attempts = new CopyOnWriteArrayList<>();
+    final AtomicInteger pending = new AtomicInteger();
+    volatile Throwable firstFailure;
+
+    HedgedCall(Supplier<R> call) {
+      this.call = call;
+    }
+
+    void start(Executor executor) {
+      final Attempt attempt = new Attempt();
+      pending.incrementAndGet();
+      try {
+        executor.execute(attempt.task);
+      } catch (RejectedExecutionException e) {
+        pending.decrementAndGet();
+        throw e;
+      }
+      attempts.add(attempt.task);
+    }
+
+    void failed(Throwable failure) {
+      if (firstFailure == null) {
+        firstFailure = failure;
+      }
+      if (pending.decrementAndGet() == 0) {
+        outcome.completeExceptionally(firstFailure);
+      }
+    }
+
+    void cancel() {
+      for (FutureTask<R> attempt : attempts) {
+        attempt.cancel(true);
+      }
+    }
+
+    /**
+     * One attempt, which tells the circuit breaker when it was cancelled.
+     */
+    private class Attempt implements Callable<R>, BooleanSupplier {
+
+      final long start = nanoTime.getAsLong();
+      final FutureTask<R> task = new FutureTask<>(this) {
+        @Override
+        protected void done() {
+          if (isCancelled()) {
+            return;
+          }
+          try {
+            final R result = get();
+            latencies.record(nanoTime.getAsLong() - start);
+            outcome.complete(result);
+          } catch (ExecutionException e) {
+            failed(e.getCause());
+          } catch (InterruptedException e) {
+            // not possible since the attempt is done
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+
+      @Override
+      public R call() {
+        return execute(HedgedCall.this.call, this);
+      }
+
+      @Override
+      public boolean getAsBoolean() {
+        return task.isCancelled();
+      }
+    }
+  }
+
+  /**
+   * Retains the most recent call latencies and periodically computes the configured
+   * percentile of them.
+   */
+  static class LatencyTracker {
+
+    static final int SAMPLES = 256;
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile long percentileNanos = -1;
+
+    /**
+     * @param percentile the percentile, such as 95, to compute or zero to disable tracking
+     */
+    LatencyTracker(double percentile) {
+      this.percentile = percentile;
+    }
+
+    /**
+     * @return the percentile of the recent latencies or -1 if disabled or there are not yet
+     * enough samples
+     */
+    long getPercentileNanos() {
+      return percentileNanos;
+    }
+
+    void record(long latencyNanos) {
+      if (percentile <= 0) {
+        return;
+      }
+      final int index = count.getAndIncrement() & Integer.MAX_VALUE;
+      samples.lazySet(index % SAMPLES, latencyNanos);
+      if (index >= SAMPLES - 1 && index % RECOMPUTE_INTERVAL == RECOMPUTE_INTERVAL - 1) {
+        final long[] sorted = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+          sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        final int rank = (int) Math.ceil(percentile / 100 * SAMPLES) - 1;
+        percentileNanos = sorted[Math.max(0, Math.min(rank, SAMPLES - 1))];
+      }
+    }
+  }
+
+  private static void increment(@Nullable Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  /**
+   * A token bucket where each call deposits a fraction of an extra attempt, such as a retry or
+   * hedge, and each extra attempt withdraws a whole one. The tokens are tracked in thousandths
+   * to allow for lock-free updates.
+   */
+  static class CallBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong tokens;
+
+    CallBudget(double ratio, int capacity) {
+      this.deposit = Math.round(ratio * TOKEN);
+      this.capacity = capacity * TOKEN;
+      this.tokens = new AtomicLong(this.capacity);
+    }
+
+    void deposit() {
+      tokens.accumulateAndGet(deposit, (current, amount) -> Math.min(current + amount, capacity));
+    }
+
+    boolean tryWithdraw() {
+      long current;
+      do {
+        current = tokens.get();
+        if (current < TOKEN) {
+          return false;
+        }
+      } while (!tokens.compareAndSet(current, current - TOKEN));
+      return true;
+    }
+  }
+}
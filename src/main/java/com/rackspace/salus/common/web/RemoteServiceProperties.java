@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * The policies applied by {@link RemoteOperations} to the calls of one remote service, which
+ * are configured by {@link RemoteOperationsConfig} from the properties under
+ * <code>salus.remote.&lt;remoteServiceName&gt;</code>, such as
+ * <code>salus.remote.policy-management.circuit-breaker.enabled</code>, and validated when
+ * bound. Services that are
+ * not configured are called without a circuit breaker or bulkhead and retried with the
+ * default retry policy.
+ */
+@Data
+public class RemoteServiceProperties {
+
+  @NotNull
+  CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+  @NotNull
+  Bulkhead bulkhead = new Bulkhead();
+
+  @NotNull
+  Retry retry = new Retry();
+
+  @NotNull
+  Hedge hedge = new Hedge();
+
+  @NotNull
+  Metrics metrics = new Metrics();
+
+  @Data
+  public static class CircuitBreaker {
+
+    /**
+     * When enabled, calls fail fast while the failure or slow call rate of the most recent
+     * calls is over its threshold.
+     */
+    boolean enabled = false;
+
+    /**
+     * The percentage of failed calls, which are those that failed with an I/O error or a
+     * server error status, at or above which the circuit opens.
+     */
+    @Min(1)
+    @Max(100)
+    int failureRateThreshold = 50;
+
+    /**
+     * The percentage of calls taking longer than the slow call duration at or above which
+     * the circuit opens.
+     */
+    @Min(1)
+    @Max(100)
+    int slowCallRateThreshold = 100;
+
+    @NotNull
+    Duration slowCallDuration = Duration.ofSeconds(5);
+
+    /**
+     * The number of most recent calls whose outcomes determine the failure and slow call
+     * rates.
+     */
+    @Min(1)
+    int slidingWindowSize = 100;
+
+    /**
+     * The number of calls required in the sliding window before the rates are evaluated.
+     */
+    @Min(1)
+    int minimumNumberOfCalls = 20;
+
+    /**
+     * How long the circuit stays open before permitting probing calls.
+     */
+    @NotNull
+    Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    /**
+     * The number of probing calls permitted while half-open, whose rates determine if the
+     * circuit closes or opens again.
+     */
+    @Min(1)
+    int permittedNumberOfCallsInHalfOpenState = 5;
+
+    /**
+     * Otherwise the sliding window never holds enough calls for the circuit to open.
+     */
+    @AssertTrue(message = "minimumNumberOfCalls must not exceed slidingWindowSize")
+    public boolean isMinimumNumberOfCallsWithinWindow() {
+      return minimumNumberOfCalls <= slidingWindowSize;
+    }
+  }
+
+  @Data
+  public static class Bulkhead {
+
+    /**
+     * When enabled, limits the number of concurrent calls to the remote service.
+     */
+    boolean enabled = false;
+
+    @Min(1)
+    int maxConcurrentCalls = 25;
+
+    /**
+     * How long a call waits for one of the concurrent calls to complete before failing. By
+     * default calls fail immediately.
+     */
+    @NotNull
+    Duration maxWaitDuration = Duration.ZERO;
+  }
+
+  /**
+   * Applies to the idempotent calls made with
+   * {@link RemoteOperations#mapRestClientExceptionsWithRetries}.
+   */
+  @Data
+  public static class Retry {
+
+    /**
+     * The maximum number of attempts, including the first one.
+     */
+    @Min(1)
+    int maxAttempts = 3;
+
+    /**
+     * The backoff of the first retry, where each retry waits for a random duration up to its
+     * backoff.
+     */
+    @NotNull
+    Duration initialBackoff = Duration.ofMillis(100);
+
+    @DecimalMin("1")
+    double backoffMultiplier = 2;
+
+    @NotNull
+    Duration maxBackoff = Duration.ofSeconds(2);
+
+    /**
+     * The number of retries the budget gains with each call, which limits retries to this
+     * ratio of the calls.
+     */
+    @DecimalMin("0")
+    double budgetRatio = 0.1;
+
+    /**
+     * The maximum number of retries the budget can accumulate, which is also the initial
+     * budget.
+     */
+    @Min(0)
+    int budgetCapacity = 10;
+  }
+
+  /**
+   * Applies to the idempotent calls made with
+   * {@link RemoteOperations#mapRestClientExceptionsWithHedging}.
+   */
+  @Data
+  public static class Hedge {
+
+    /**
+     * How long to wait for the first attempt before starting a second, identical attempt.
+     */
+    @NotNull
+    Duration delay = Duration.ofMillis(50);
+
+    /**
+     * When greater than zero, such as 95, the hedge delay is instead this percentile of the
+     * latencies of recent calls, once enough calls have been made.
+     */
+    @DecimalMin("0")
+    @DecimalMax("100")
+    double delayPercentile = 0;
+
+    /**
+     * The number of hedges the budget gains with each call, which limits hedges to this ratio
+     * of the calls.
+     */
+    @DecimalMin("0")
+    double budgetRatio = 0.1;
+
+    /**
+     * The maximum number of hedges the budget can accumulate, which is also the initial
+     * budget.
+     */
+    @Min(0)
+    int budgetCapacity = 10;
+  }
+
+  /**
+   * Configures the distribution of the <code>remote_operation_duration</code> timers of the
+   * remote service.
+   */
+  @Data
+  public static class Metrics {
+
+    /**
+     * The percentiles, such as 0.5 and 0.99, computed by this application and published for
+     * each timer. These cannot be aggregated across instances.
+     */
+    @NotNull
+    List<Double> percentiles = new ArrayList<>();
+
+    /**
+     * When enabled, publishes a histogram of each timer from which the monitoring system can
+     * aggregate percentiles across instances.
+     */
+    boolean percentileHistogram = false;
+
+    /**
+     * The durations, such as 100ms and 1s, published as histogram buckets of each timer in
+     * order to track service level objectives.
+     */
+    @NotNull
+    List<Duration> serviceLevelObjectives = new ArrayList<>();
+  }
+}
@@ -16,7 +16,10 @@
 
 package com.rackspace.salus.common.web;
 
+import com.rackspace.salus.common.web.WebSecurityProperties.TokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.Arrays;
+import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -34,4 +37,18 @@ public class ReposeHeaderFilter extends PreAuthenticatedFilter {
     public ReposeHeaderFilter(boolean requireTenantId) {
         super(HEADER_TENANT, Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), requireTenantId);
     }
+
+    public ReposeHeaderFilter(boolean requireTenantId, @Nullable TokenCache tokenCache,
+                              @Nullable MeterRegistry meterRegistry) {
+        super(HEADER_TENANT, Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), requireTenantId,
+            tokenCache, meterRegistry);
+    }
+
+    public ReposeHeaderFilter(boolean requireTenantId, WebSecurityProperties webSecurityProperties,
+                              @Nullable MeterRegistry meterRegistry) {
+        super(new PreAuthenticatedTokenResolver(HEADER_TENANT,
+            Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), requireTenantId,
+            webSecurityProperties.getTokenCache(),
+            webSecurityProperties.getMetrics().getTimerSamplingInterval(), meterRegistry));
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.MetricTags;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Decides which request failures get logged with a full stack trace. For each exception type
+ * and URI, the first {@link #setTracesPerInterval(int) N} failures of each interval are
+ * logged and the rest are suppressed. The number suppressed is reported with the next failure
+ * that gets logged and counted by the <code>suppressed_request_failure_logs</code> metric.
+ * <p>
+ *   Only counters are updated per failure, so the outcome is approximate when many threads
+ *   fail at the very moment an interval rolls over. To bound memory, failures beyond the
+ *   first {@value #MAX_KEYS} distinct exception type and URI combinations share one set of
+ *   counters.
+ * </p>
+ */
+class RequestFailureLogSampler {
+
+  /**
+   * Returned by {@link #sample(Class, String)} when the failure should not be logged.
+   */
+  static final long SUPPRESS = -1;
+
+  static final int MAX_KEYS = 1_000;
+  static final String OVERFLOW_TAG = "OTHER";
+
+  private final LongSupplier nanoTime;
+  private final ConcurrentMap<Key, Window> windows = new ConcurrentHashMap<>();
+  private final Window overflow;
+
+  private volatile int tracesPerInterval = 10;
+  private volatile long intervalNanos = Duration.ofMinutes(1).toNanos();
+  private volatile MeterRegistry meterRegistry;
+
+  RequestFailureLogSampler() {
+    this(System::nanoTime);
+  }
+
+  RequestFailureLogSampler(LongSupplier nanoTime) {
+    this.nanoTime = nanoTime;
+    overflow = new Window(OVERFLOW_TAG, OVERFLOW_TAG);
+  }
+
+  /**
+   * @param tracesPerInterval the number of failures logged per exception type and URI in each
+   * interval, where zero or less logs every failure
+   */
+  void setTracesPerInterval(int tracesPerInterval) {
+    this.tracesPerInterval = tracesPerInterval;
+  }
+
+  void setInterval(Duration interval) {
+    this.intervalNanos = interval.toNanos();
+  }
+
+  void setMeterRegistry(@Nullable MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * @return {@link #SUPPRESS} if the failure should not be logged or, otherwise, the number of
+   * the same failures suppressed since the last one was logged
+   */
+  long sample(Class<?> exceptionType, String uri) {
+    final int limit = tracesPerInterval;
+    if (limit <= 0) {
+      return 0;
+    }
+
+    final Window window = windowFor(exceptionType, uri);
+    final long now = nanoTime.getAsLong();
+    final long start = window.start.get();
+    if (now - start >= intervalNanos && window.start.compareAndSet(start, now)) {
+      window.logged.set(0);
+    }
+
+    // checking first keeps the count from growing, and wrapping, during a flood of failures
+    if (window.logged.get() < limit && window.logged.incrementAndGet() <= limit) {
+      return window.suppressed.getAndSet(0);
+    }
+    window.suppressed.incrementAndGet();
+    final Counter counter = window.suppressedCounter(meterRegistry);
+    if (counter != null) {
+      counter.increment();
+    }
+    return SUPPRESS;
+  }
+
+  private Window windowFor(Class<?> exceptionType, String uri) {
+    final Key key = new Key(exceptionType, uri);
+    final Window window = windows.get(key);
+    if (window != null) {
+      return window;
+    }
+    if (windows.size() >= MAX_KEYS) {
+      return overflow;
+    }
+    return windows.computeIfAbsent(key,
+        k -> new Window(exceptionType.getSimpleName(), uri));
+  }
+
+  private static class Key {
+    final Class<?> exceptionType;
+    final String uri;
+
+    Key(Class<?> exceptionType, String uri) {
+      this.exceptionType = exceptionType;
+      this.uri = uri;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return exceptionType == key.exceptionType && uri.equals(key.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(exceptionType, uri);
+    }
+  }
+
+  private class Window {
+    final String exceptionTag;
+    final String uriTag;
+    final AtomicLong start = new AtomicLong(nanoTime.getAsLong());
+    final AtomicInteger logged = new AtomicInteger();
+    final AtomicLong suppressed = new AtomicLong();
+    volatile Counter counter;
+
+    Window(String exceptionTag, String uriTag) {
+      this.exceptionTag = exceptionTag;
+      this.uriTag = uriTag;
+    }
+
+    /**
+     * Registers the counter on first use, since most windows never suppress anything.
+     */
+    @Nullable
+    Counter suppressedCounter(@Nullable MeterRegistry meterRegistry) {
+      Counter counter = this.counter;
+      if (counter == null && meterRegistry != null) {
+        counter = Counter.builder(MetricNames.SUPPRESSED_REQUEST_FAILURE_LOGS)
+            .tag(MetricTags.EXCEPTION_METRIC_TAG, exceptionTag)
+            .tag(MetricTags.URI_METRIC_TAG, uriTag)
+            .register(meterRegistry);
+        // registering is idempotent, so racing threads end up with the same counter
+        this.counter = counter;
+      }
+      return counter;
+    }
+  }
+}
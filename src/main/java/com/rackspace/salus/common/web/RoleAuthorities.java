@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Translates identity roles, such as <code>monitoring:admin</code>, into the equivalent Spring
+ * Security authority, such as <code>ROLE_MONITORING_ADMIN</code>.
+ * <p>
+ *   Translated authorities are interned in a fixed-size, lock-free table keyed by the raw role
+ *   text, so repeat roles reuse the same {@link SimpleGrantedAuthority} instance and a lookup
+ *   can be done directly against a region of a header value without any allocation. When the
+ *   slots for a role are all taken, an existing entry is replaced, which keeps the table
+ *   bounded regardless of how many distinct roles are seen.
+ * </p>
+ */
+class RoleAuthorities {
+
+  static final int DEFAULT_CAPACITY = 1024;
+  static final String ROLE_PREFIX = "ROLE_";
+
+  /**
+   * Roles longer than this are translated without being interned
+   */
+  private static final int MAX_INTERNED_LENGTH = 128;
+  private static final int PROBES = 4;
+
+  private final AtomicReferenceArray<Entry> table;
+  private final int mask;
+
+  RoleAuthorities() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the number of interned roles, which is rounded up to a power of two
+   */
+  RoleAuthorities(int capacity) {
+    final int size = Integer.highestOneBit(Math.max(PROBES, capacity - 1) << 1);
+    table = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  /**
+   * @param value the text containing the role
+   * @param start the index of the first character of the role
+   * @param end the index after the last character of the role
+   * @return the authority for the role
+   */
+  SimpleGrantedAuthority authorityFor(String value, int start, int end) {
+    final int length = end - start;
+    if (length > MAX_INTERNED_LENGTH) {
+      return new SimpleGrantedAuthority(normalize(value, start, end));
+    }
+
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + value.charAt(i);
+    }
+    // spread the bits since only the low bits select the slot
+    hash ^= hash >>> 16;
+
+    for (int probe = 0; probe < PROBES; probe++) {
+      final Entry entry = table.get((hash + probe) & mask);
+      if (entry == null) {
+        break;
+      }
+      if (entry.hash == hash && entry.role.length() == length
+          && entry.role.regionMatches(0, value, start, length)) {
+        return entry.authority;
+      }
+    }
+
+    final Entry created = new Entry(hash, value.substring(start, end),
+        new SimpleGrantedAuthority(normalize(value, start, end)));
+    for (int probe = 0; probe < PROBES; probe++) {
+      if (table.compareAndSet((hash + probe) & mask, null, created)) {
+        return created.authority;
+      }
+    }
+    // all slots are in use, so evict the role in the first slot
+    table.set(hash & mask, created);
+    return created.authority;
+  }
+
+  /**
+   * Applies the same translation as the original stream-based filter: <code>:</code> and
+   * <code>-</code> become <code>_</code>, the role is upper-cased, and prefixed with
+   * <code>ROLE_</code>.
+   */
+  static String normalize(String value, int start, int end) {
+    final StringBuilder sb = new StringBuilder(ROLE_PREFIX.length() + end - start)
+        .append(ROLE_PREFIX);
+    final String upper = value.substring(start, end).toUpperCase();
+    for (int i = 0; i < upper.length(); i++) {
+      final char c = upper.charAt(i);
+      sb.append(c == ':' || c == '-' ? '_' : c);
+    }
+    return sb.toString();
+  }
+
+  private static class Entry {
+    final int hash;
+    final String role;
+    final SimpleGrantedAuthority authority;
+
+    Entry(int hash, String role, SimpleGrantedAuthority authority) {
+      this.hash = hash;
+      this.role = role;
+      this.authority = authority;
+    }
+  }
+}
@@ -18,10 +18,7 @@ package com.rackspace.salus.common.web;
 
 import com.rackspace.salus.common.config.RoleProperties;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.Objects;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.ClassUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.MediaType;
@@ -41,12 +38,16 @@ import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJack
 @RestControllerAdvice
 public class RoleBasedJsonViewControllerAdvice extends AbstractMappingJacksonResponseBodyAdvice {
 
-  private RoleProperties roleProperties;
+  private final RoleBasedViewResolver viewResolver;
 
-  @Autowired
   public RoleBasedJsonViewControllerAdvice(RoleProperties roleProperties) {
+    this(new RoleBasedViewResolver(roleProperties));
+  }
+
+  @Autowired
+  public RoleBasedJsonViewControllerAdvice(RoleBasedViewResolver viewResolver) {
     super();
-    this.roleProperties = roleProperties;
+    this.viewResolver = viewResolver;
 
   }
 
@@ -62,23 +63,17 @@ public class RoleBasedJsonViewControllerAdvice extends AbstractMappingJacksonRes
 
     if (SecurityContextHolder.getContext().getAuthentication() != null) {
       Collection<? extends GrantedAuthority> authorities = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
-      Class jsonView = authorities.stream()
-          .map(GrantedAuthority::getAuthority)
-          // get the json view class for that enum
-          .map(role -> roleProperties.getRoleToView().get(role))
-          .map(View::getView)
-          .filter(Objects::nonNull)
-          // get the json view class which extends the most interfaces
-          // i.e. the one with the greater access permissions
-          .max(Comparator.comparing(view -> ClassUtils.getAllInterfaces(view).size()))
-          .orElseThrow(() ->
-              // this can only occur if an x-tenant-id header is provided and the given roles
-              // are not valid.
-              // this should not happen since one of those roles is required to pass repose's validation.
-              new IllegalArgumentException(String.format("No authorized roles found %s",
-                  authorities.stream()
-                      .map(GrantedAuthority::getAuthority)
-                      .collect(Collectors.joining(",")))));
+      // get the json view class with the greatest access permissions
+      Class jsonView = viewResolver.resolve(authorities);
+      if (jsonView == null) {
+        // this can only occur if an x-tenant-id header is provided and the given roles
+        // are not valid.
+        // this should not happen since one of those roles is required to pass repose's validation.
+        throw new IllegalArgumentException(String.format("No authorized roles found %s",
+            authorities.stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","))));
+      }
 
       mappingJacksonValue.setSerializationView(jsonView);
     }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link RoleBasedJsonViewHttpMessageConverter}, which Spring Boot uses in place of
+ * its default JSON message converter since it is a subclass of it.
+ */
+@Configuration
+public class RoleBasedJsonViewConverterConfig {
+
+  @Bean
+  public RoleBasedJsonViewHttpMessageConverter roleBasedJsonViewHttpMessageConverter(
+      ObjectMapper objectMapper) {
+    return new RoleBasedJsonViewHttpMessageConverter(objectMapper);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import com.rackspace.salus.common.web.View.ViewName;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.lang.Nullable;
+import org.springframework.util.TypeUtils;
+
+/**
+ * A JSON message converter that holds one {@link ObjectWriter} per {@link ViewName}, created
+ * up front, and writes responses whose serialization view was set by
+ * {@link RoleBasedJsonViewControllerAdvice} directly with it. The standard converter instead
+ * creates and configures a new writer for the view on every response.
+ * <p>
+ *   Responses with Jackson filters, server-sent events, and anything without one of the known
+ *   views are written by the standard converter.
+ * </p>
+ */
+public class RoleBasedJsonViewHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  private final Map<Class<?>, ObjectWriter> viewWriters;
+
+  public RoleBasedJsonViewHttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper);
+    final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+    for (ViewName viewName : ViewName.values()) {
+      final Class<?> view = View.getView(viewName);
+      writers.put(view, objectMapper.writerWithView(view));
+    }
+    viewWriters = Map.copyOf(writers);
+  }
+
+  @Override
+  protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    final ObjectWriter viewWriter = viewWriterFor(object, outputMessage.getHeaders().getContentType());
+    if (viewWriter == null) {
+      super.writeInternal(object, type, outputMessage);
+      return;
+    }
+
+    final Object value = ((MappingJacksonValue) object).getValue();
+    ObjectWriter objectWriter = viewWriter;
+    // same as the standard converter, retain the declared type of collections, etc
+    if (type != null && TypeUtils.isAssignable(type, value.getClass())) {
+      final JavaType javaType = getJavaType(type, null);
+      if (javaType.isContainerType()) {
+        objectWriter = objectWriter.forType(javaType);
+      }
+    }
+
+    final JsonEncoding encoding = getJsonEncoding(outputMessage.getHeaders().getContentType());
+    final JsonGenerator generator =
+        getObjectMapper().getFactory().createGenerator(outputMessage.getBody(), encoding);
+    try {
+      writePrefix(generator, object);
+      objectWriter.writeValue(generator, value);
+      writeSuffix(generator, object);
+      generator.flush();
+      generator.close();
+    } catch (InvalidDefinitionException ex) {
+      throw new HttpMessageConversionException("Type definition error: " + ex.getType(), ex);
+    } catch (JsonProcessingException ex) {
+      throw new HttpMessageNotWritableException("Could not write JSON: " + ex.getOriginalMessage(), ex);
+    }
+  }
+
+  /**
+   * @return the pre-built writer for the object's view or null if the standard converter
+   * should be used
+   */
+  @Nullable
+  private ObjectWriter viewWriterFor(Object object, @Nullable MediaType contentType) {
+    if (!(object instanceof MappingJacksonValue)) {
+      return null;
+    }
+    final MappingJacksonValue container = (MappingJacksonValue) object;
+    if (container.getSerializationView() == null || container.getFilters() != null
+        || (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_EVENT_STREAM))) {
+      return null;
+    }
+    return viewWriters.get(container.getSerializationView());
+  }
+}
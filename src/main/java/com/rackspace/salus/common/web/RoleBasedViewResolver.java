@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.rackspace.salus.common.config.RoleProperties;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ClassUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Determines the json view to serialize responses with given the authorities of a request,
+ * which is the view of the authorities with the greatest access permissions, i.e. the view
+ * class that extends the most interfaces.
+ * <p>
+ *   The view and rank of each role in {@link RoleProperties#getRoleToView()} are computed once
+ *   at startup. The resolved view of each distinct collection of authorities is then memoized,
+ *   so resolving the view of a request involves no reflection or exceptions.
+ * </p>
+ */
+@Component
+@Slf4j
+public class RoleBasedViewResolver {
+
+  /**
+   * Limits the number of memoized authority collections, beyond which views are resolved
+   * from the precomputed role table without memoizing.
+   */
+  static final int MAX_MEMOIZED = 256;
+
+  /**
+   * The authorities of requests that were not authenticated, such as internal
+   * service-to-service requests, which are the same as those given by Spring Security's
+   * anonymous authentication.
+   */
+  public static final List<GrantedAuthority> ANONYMOUS_AUTHORITIES =
+      List.of(new SimpleGrantedAuthority("ROLE_ANONYMOUS"));
+
+  private final Map<String, RankedView> roleViews;
+  private final ConcurrentMap<List<GrantedAuthority>, Class<?>> memoized = new ConcurrentHashMap<>();
+
+  @Autowired
+  public RoleBasedViewResolver(RoleProperties roleProperties) {
+    final Map<String, RankedView> views = new HashMap<>();
+    roleProperties.getRoleToView().forEach((role, viewName) -> {
+      final Class<?> view = View.getView(viewName);
+      if (view != null) {
+        views.put(role, new RankedView(view, ClassUtils.getAllInterfaces(view).size()));
+      } else {
+        log.warn("Ignoring role={} since view={} is not a known view", role, viewName);
+      }
+    });
+    roleViews = Map.copyOf(views);
+  }
+
+  /**
+   * @param authorities the authorities of a request
+   * @return the view with the greatest access permissions of the given authorities or null if
+   * none of the authorities are mapped to a view
+   */
+  @Nullable
+  public Class<?> resolve(Collection<? extends GrantedAuthority> authorities) {
+    // the collection itself is used as the lookup key to avoid copying it on every request
+    final Class<?> cached = memoized.get(authorities);
+    if (cached != null) {
+      return cached == NoView.class ? null : cached;
+    }
+
+    final Class<?> view = compute(authorities);
+    if (memoized.size() < MAX_MEMOIZED) {
+      memoized.putIfAbsent(List.copyOf(authorities), view != null ? view : NoView.class);
+    }
+    return view;
+  }
+
+  @Nullable
+  private Class<?> compute(Collection<? extends GrantedAuthority> authorities) {
+    RankedView best = null;
+    for (GrantedAuthority authority : authorities) {
+      final RankedView candidate = roleViews.get(authority.getAuthority());
+      if (candidate != null && (best == null || candidate.rank > best.rank)) {
+        best = candidate;
+      }
+    }
+    return best != null ? best.view : null;
+  }
+
+  /**
+   * Memoizes the absence of a view since concurrent maps cannot hold nulls
+   */
+  private interface NoView {}
+
+  private static class RankedView {
+    final Class<?> view;
+    final int rank;
+
+    RankedView(Class<?> view, int rank) {
+      this.view = view;
+      this.rank = rank;
+    }
+  }
+}
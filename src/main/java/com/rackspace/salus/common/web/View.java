@@ -15,8 +15,13 @@
  */
 package com.rackspace.salus.common.web;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nullable;
 
 public class View {
   public interface Public {}
@@ -29,19 +34,46 @@ public class View {
     ADMIN
   }
 
-  private static final Map<ViewName, Class> viewNameToClass = new HashMap<>();
+  private static final Map<ViewName, Class<?>> viewNameToClass;
+  // upper-cased view names to their classes, so lookups by name never go through the
+  // exception-throwing ViewName.valueOf
+  private static final Map<String, Class<?>> nameToClass;
   static {
-    viewNameToClass.put(ViewName.PUBLIC, Public.class);
-    viewNameToClass.put(ViewName.INTERNAL, Internal.class);
-    viewNameToClass.put(ViewName.ADMIN, Admin.class);
+    final Map<ViewName, Class<?>> views = new EnumMap<>(ViewName.class);
+    views.put(ViewName.PUBLIC, Public.class);
+    views.put(ViewName.INTERNAL, Internal.class);
+    views.put(ViewName.ADMIN, Admin.class);
+    viewNameToClass = Collections.unmodifiableMap(views);
+
+    final Map<String, Class<?>> names = new HashMap<>();
+    for (Map.Entry<ViewName, Class<?>> entry : views.entrySet()) {
+      names.put(entry.getKey().name(), entry.getValue());
+    }
+    nameToClass = Map.copyOf(names);
+  }
+
+  public static Class<?> getView(ViewName view) {
+    return viewNameToClass.get(view);
   }
 
-  public static Class getView(String view) {
-    try {
-      ViewName v = ViewName.valueOf(view);
-      return viewNameToClass.get(v);
-    } catch (IllegalArgumentException | NullPointerException e) {
+  /**
+   * @param view the name of a {@link ViewName}, in any case
+   * @return the view class or null if the name is null or not a known view
+   */
+  @Nullable
+  public static Class<?> getView(@Nullable String view) {
+    if (view == null) {
       return null;
     }
+    final Class<?> viewClass = nameToClass.get(view);
+    return viewClass != null ? viewClass : nameToClass.get(view.toUpperCase(Locale.ROOT));
+  }
+
+  /**
+   * @param view the name of a {@link ViewName}, in any case
+   * @return the view class or empty if the name is null or not a known view
+   */
+  public static Optional<Class<?>> findView(@Nullable String view) {
+    return Optional.ofNullable(getView(view));
   }
-}
\ No newline at end of file
+}
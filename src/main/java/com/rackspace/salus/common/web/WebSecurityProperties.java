@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import java.time.Duration;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("salus.common.web-security")
+@Data
+public class WebSecurityProperties {
+
+  /**
+   * When enabled, {@link BackendServicesWebSecurityConfig} configures a lean filter chain for
+   * purely header-based, internal service-to-service authentication. Sessions are never
+   * created or consulted; the request cache, security headers, servlet API integration, and
+   * logout filters are not registered; and the security context is not persisted, so it is
+   * simply cleared at the end of each request.
+   */
+  boolean stateless = false;
+
+  @NotNull
+  TokenCache tokenCache = new TokenCache();
+
+  @NotNull
+  Metrics metrics = new Metrics();
+
+  @Data
+  public static class TokenCache {
+
+    /**
+     * When enabled, {@link PreAuthenticatedFilter} memoizes the authorities translated from
+     * each distinct combination of roles header values.
+     */
+    boolean enabled = false;
+
+    /**
+     * The maximum number of roles header combinations to retain.
+     */
+    long maximumSize = 1_000;
+
+    /**
+     * How long a cached set of authorities is retained after it was translated.
+     */
+    @NotNull
+    Duration expireAfterWrite = Duration.ofMinutes(10);
+  }
+
+  @Data
+  public static class Metrics {
+
+    /**
+     * When greater than zero, one of every N requests, chosen at random, is timed while
+     * {@link PreAuthenticatedTokenResolver} translates its headers. Outcome counts are always
+     * reported when a meter registry is available.
+     */
+    int timerSamplingInterval = 0;
+  }
+}
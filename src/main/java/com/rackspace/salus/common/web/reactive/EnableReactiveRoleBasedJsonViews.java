@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import com.rackspace.salus.common.web.RoleBasedViewResolver;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The WebFlux counterpart of {@link com.rackspace.salus.common.web.EnableRoleBasedJsonViews},
+ * which populates the security context from the Repose headers and serializes responses with
+ * the json view of the request's roles.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Import({ReactiveBackendServicesWebSecurityConfig.class, RoleBasedViewResolver.class,
+    ReactiveRoleBasedJsonViewConfig.class})
+public @interface EnableReactiveRoleBasedJsonViews {
+
+}
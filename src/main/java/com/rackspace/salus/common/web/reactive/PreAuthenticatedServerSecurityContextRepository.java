@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import com.rackspace.salus.common.web.PreAuthenticatedToken;
+import com.rackspace.salus.common.web.PreAuthenticatedTokenResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive equivalent of {@link com.rackspace.salus.common.web.PreAuthenticatedFilter}, which
+ * loads a security context holding the {@link PreAuthenticatedToken} translated from the
+ * request headers. Since the headers are already present, loading never blocks.
+ * <p>
+ *   Authentication is performed by the upstream apis, so nothing is ever saved.
+ * </p>
+ */
+@Slf4j
+public class PreAuthenticatedServerSecurityContextRepository
+    implements ServerSecurityContextRepository {
+
+  private final PreAuthenticatedTokenResolver tokenResolver;
+
+  public PreAuthenticatedServerSecurityContextRepository(
+      PreAuthenticatedTokenResolver tokenResolver) {
+    this.tokenResolver = tokenResolver;
+  }
+
+  @Override
+  public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<SecurityContext> load(ServerWebExchange exchange) {
+    final HttpHeaders headers = exchange.getRequest().getHeaders();
+    return Mono.justOrEmpty(tokenResolver.resolve(headers::getFirst))
+        .doOnNext(auth -> log.debug("Processed Repose-driven authentication={}", auth))
+        .map(SecurityContextImpl::new);
+  }
+}
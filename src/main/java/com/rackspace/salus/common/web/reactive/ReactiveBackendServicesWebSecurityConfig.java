@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_TENANT;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_IMPERSONATOR_ROLES;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_ROLES;
+
+import com.rackspace.salus.common.config.RoleProperties;
+import com.rackspace.salus.common.web.PreAuthenticatedTokenResolver;
+import com.rackspace.salus.common.web.WebSecurityProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * The reactive equivalent of {@link com.rackspace.salus.common.web.BackendServicesWebSecurityConfig},
+ * which populates the security context with the roles passed down from the public/admin api.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@EnableConfigurationProperties({RoleProperties.class, WebSecurityProperties.class})
+@Slf4j
+public class ReactiveBackendServicesWebSecurityConfig {
+
+  @Bean
+  public PreAuthenticatedTokenResolver reposeTokenResolver(
+      WebSecurityProperties webSecurityProperties, Optional<MeterRegistry> meterRegistry) {
+    return new PreAuthenticatedTokenResolver(HEADER_TENANT,
+        Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), false,
+        webSecurityProperties.getTokenCache(),
+        webSecurityProperties.getMetrics().getTimerSamplingInterval(), meterRegistry.orElse(null));
+  }
+
+  /**
+   * As authentication has already been performed by the public/admin apis this can allow all
+   * requests through without further validation.
+   */
+  @Bean
+  public SecurityWebFilterChain reposeSecurityWebFilterChain(ServerHttpSecurity http,
+      PreAuthenticatedTokenResolver reposeTokenResolver) {
+    log.debug("Configuring reactive tenant web security");
+    return http
+        .csrf().disable()
+        .httpBasic().disable()
+        .formLogin().disable()
+        .logout().disable()
+        .securityContextRepository(
+            new PreAuthenticatedServerSecurityContextRepository(reposeTokenResolver))
+        .authorizeExchange()
+        .anyExchange().permitAll()
+        .and()
+        .build();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rackspace.salus.common.web.PreAuthenticatedTokenResolver;
+import com.rackspace.salus.common.web.RoleBasedViewResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers {@link RoleBasedJackson2JsonEncoder} as the default JSON encoder of WebFlux.
+ */
+@Configuration
+public class ReactiveRoleBasedJsonViewConfig implements WebFluxConfigurer {
+
+  private final ObjectMapper objectMapper;
+  private final PreAuthenticatedTokenResolver tokenResolver;
+  private final RoleBasedViewResolver viewResolver;
+
+  @Autowired
+  public ReactiveRoleBasedJsonViewConfig(ObjectMapper objectMapper,
+                                         PreAuthenticatedTokenResolver tokenResolver,
+                                         RoleBasedViewResolver viewResolver) {
+    this.objectMapper = objectMapper;
+    this.tokenResolver = tokenResolver;
+    this.viewResolver = viewResolver;
+  }
+
+  @Override
+  public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+    configurer.defaultCodecs().jackson2JsonEncoder(
+        new RoleBasedJackson2JsonEncoder(objectMapper, tokenResolver, viewResolver));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rackspace.salus.common.web.PreAuthenticatedTokenResolver;
+import com.rackspace.salus.common.web.RoleBasedViewResolver;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2CodecSupport;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * The reactive equivalent of {@link com.rackspace.salus.common.web.RoleBasedJsonViewControllerAdvice},
+ * which serializes responses with the json view of the roles provided in the request headers.
+ * <p>
+ *   Since the security context of a reactive request is not available while resolving encoder
+ *   hints, the roles are translated from the headers again. That translation is interned and
+ *   optionally cached, so it is cheap, and is not counted again by the metrics of the
+ *   resolver. As with the servlet anonymous filter, requests without
+ *   roles are given <code>ROLE_ANONYMOUS</code>.
+ * </p>
+ */
+public class RoleBasedJackson2JsonEncoder extends Jackson2JsonEncoder {
+
+  private final PreAuthenticatedTokenResolver tokenResolver;
+  private final RoleBasedViewResolver viewResolver;
+
+  public RoleBasedJackson2JsonEncoder(ObjectMapper objectMapper,
+                                      PreAuthenticatedTokenResolver tokenResolver,
+                                      RoleBasedViewResolver viewResolver) {
+    super(objectMapper);
+    this.tokenResolver = tokenResolver;
+    this.viewResolver = viewResolver;
+  }
+
+  @Override
+  public Map<String, Object> getEncodeHints(@Nullable ResolvableType actualType,
+                                            ResolvableType elementType,
+                                            @Nullable MediaType mediaType,
+                                            ServerHttpRequest request,
+                                            ServerHttpResponse response) {
+    final Collection<? extends GrantedAuthority> authorities =
+        tokenResolver.resolveAgain(request.getHeaders()::getFirst)
+            .map(Authentication::getAuthorities)
+            .orElse(RoleBasedViewResolver.ANONYMOUS_AUTHORITIES);
+    final Class<?> jsonView = viewResolver.resolve(authorities);
+    if (jsonView == null) {
+      // same as the servlet advice, this should not happen since one of those roles is required
+      // to pass repose's validation.
+      throw new IllegalArgumentException(String.format("No authorized roles found %s",
+          authorities.stream()
+              .map(GrantedAuthority::getAuthority)
+              .collect(Collectors.joining(","))));
+    }
+
+    final Map<String, Object> hints = new HashMap<>(
+        super.getEncodeHints(actualType, elementType, mediaType, request, response));
+    hints.put(Jackson2CodecSupport.JSON_VIEW_HINT, jsonView);
+    return hints;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.messaging;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.Test;
+
+public class ConsistentHashPartitionerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  public void testStablePartitioning() {
+    final ConsistentHashPartitioner partitioner = partitioner(Map.of());
+    final Cluster cluster = cluster("topic", 16);
+
+    final int first = partition(partitioner, "topic", "t-1:r-1", cluster);
+    assertThat(partition(partitioner, "topic", "t-1:r-1", cluster)).isEqualTo(first);
+    assertThat(first).isBetween(0, 15);
+  }
+
+  @Test
+  public void testFewKeysMoveWhenPartitionsAdded() {
+    final ConsistentHashPartitioner partitioner = partitioner(Map.of());
+    final Cluster before = cluster("topic", 64);
+    final Cluster after = cluster("topic", 65);
+
+    final int keys = 10_000;
+    long moved = IntStream.range(0, keys)
+        .filter(i -> partition(partitioner, "topic", "t-" + i, before)
+            != partition(partitioner, "topic", "t-" + i, after))
+        .count();
+
+    // ideally 1/65 of the keys move
+    assertThat(moved).isLessThan(keys / 65 * 2);
+  }
+
+  @Test
+  public void testMetricsTopicUsesConfiguredPartitions() {
+    final ConsistentHashPartitioner partitioner = partitioner(Map.of(
+        ConsistentHashPartitioner.METRICS_TOPIC_CONFIG, "metrics",
+        ConsistentHashPartitioner.METRICS_TOPIC_PARTITIONS_CONFIG, "4"
+    ));
+    final Cluster cluster = cluster("metrics", 32);
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(partition(partitioner, "metrics", "t-" + i, cluster)).isBetween(0, 3);
+    }
+
+    assertThat(meterRegistry.get("kafka_partitioner_records").tag("topic", "metrics")
+        .counters()).hasSize(4);
+    assertThat(meterRegistry.get("kafka_partitioner_skew").tag("topic", "metrics")
+        .gauge().value()).isBetween(1.0, 1.5);
+  }
+
+  private ConsistentHashPartitioner partitioner(Map<String, ?> configs) {
+    final ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner(meterRegistry);
+    partitioner.configure(configs);
+    return partitioner;
+  }
+
+  private static int partition(ConsistentHashPartitioner partitioner, String topic, String key,
+                               Cluster cluster) {
+    return partitioner.partition(topic, key, key.getBytes(StandardCharsets.UTF_8),
+        null, null, cluster);
+  }
+
+  private static Cluster cluster(String topic, int partitions) {
+    final Node node = new Node(0, "localhost", 9092);
+    final List<PartitionInfo> partitionInfos = IntStream.range(0, partitions)
+        .mapToObj(p -> new PartitionInfo(topic, p, node, new Node[]{node}, new Node[]{node}))
+        .collect(toList());
+    return new Cluster("test", List.of(node), partitionInfos, Set.of(), Set.of());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.junit.Test;
+
+public class CIDRUtilsTest {
+
+  @Test
+  public void testIpv4() throws UnknownHostException {
+    final CIDRUtils cidrUtils = new CIDRUtils("10.1.2.3/16");
+
+    assertThat(cidrUtils.getNetworkAddress()).isEqualTo("10.1.0.0");
+    assertThat(cidrUtils.getBroadcastAddress()).isEqualTo("10.1.255.255");
+    assertThat(cidrUtils.isInRange("10.1.0.0")).isTrue();
+    assertThat(cidrUtils.isInRange("10.1.200.7")).isTrue();
+    assertThat(cidrUtils.isInRange("10.1.255.255")).isTrue();
+    assertThat(cidrUtils.isInRange("10.2.0.0")).isFalse();
+    assertThat(cidrUtils.isInRange("10.0.255.255")).isFalse();
+  }
+
+  @Test
+  public void testIpv4_edgePrefixes() throws UnknownHostException {
+    assertThat(new CIDRUtils("0.0.0.0/0").isInRange("255.255.255.255")).isTrue();
+
+    final CIDRUtils single = new CIDRUtils("192.168.1.1/32");
+    assertThat(single.getBroadcastAddress()).isEqualTo("192.168.1.1");
+    assertThat(single.isInRange("192.168.1.1")).isTrue();
+    assertThat(single.isInRange("192.168.1.2")).isFalse();
+  }
+
+  @Test
+  public void testIpv6() throws UnknownHostException {
+    final CIDRUtils cidrUtils = new CIDRUtils("2001:db8:abcd:12::1/72");
+
+    assertThat(cidrUtils.getNetworkAddress()).isEqualTo("2001:db8:abcd:12:0:0:0:0");
+    assertThat(cidrUtils.getBroadcastAddress()).isEqualTo("2001:db8:abcd:12:ff:ffff:ffff:ffff");
+    assertThat(cidrUtils.isInRange("2001:db8:abcd:12:ab::1")).isTrue();
+    assertThat(cidrUtils.isInRange("2001:db8:abcd:12:100::")).isFalse();
+    assertThat(cidrUtils.isInRange("10.0.0.1")).isFalse();
+  }
+
+  @Test
+  public void testPreParsedAddress() throws UnknownHostException {
+    final CIDRUtils cidrUtils = new CIDRUtils("172.16.0.0/12");
+    final IpAddress address = IpAddress.of(InetAddress.getByName("172.20.1.1"));
+
+    assertThat(cidrUtils.isInRange(address)).isTrue();
+    assertThat(cidrUtils.getRange().contains(address)).isTrue();
+    assertThat(cidrUtils.getRange().toString()).isEqualTo("172.16.0.0/12");
+  }
+
+  @Test
+  public void testHostnamesRejectedByDefault() {
+    assertThatThrownBy(() -> new CIDRUtils("localhost/8"))
+        .isInstanceOf(UnknownHostException.class);
+    assertThatThrownBy(() -> new CIDRUtils("10.0.0.0/8").isInRange("localhost"))
+        .isInstanceOf(UnknownHostException.class);
+  }
+
+  @Test
+  public void testHostnamesResolvedWhenEnabled() throws UnknownHostException {
+    assertThat(new CIDRUtils("localhost/8", true).isInRange("localhost")).isTrue();
+  }
+
+  @Test
+  public void testIpAddressParse() throws UnknownHostException {
+    final String[] literals = {
+        "0.0.0.0", "10.1.2.3", "255.255.255.255", "::", "::1", "1::", "1:2:3:4:5:6:7:8",
+        "2001:DB8::ab:1", "::ffff:10.0.0.1", "::10.0.0.1", "1:2:3:4:5::1.2.3.4"
+    };
+    for (String literal : literals) {
+      assertThat(IpAddress.parse(literal))
+          .as(literal)
+          .isEqualTo(IpAddress.of(InetAddress.getByName(literal)));
+    }
+    // IPv4-mapped addresses are normalized to IPv4 just like InetAddress
+    assertThat(IpAddress.parse("::ffff:a00:1").isIpv6()).isFalse();
+
+    final String[] invalid = {
+        "", "1.2.3", "1.2.3.4.", "1.2.3.256", "01.2.3.4", " 1.2.3.4", "host.example.com",
+        ":", ":::", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7::8", "12345::", "1:",
+        "fe80::1%eth0", "[::1]", "::1.2.3", "g::1"
+    };
+    for (String value : invalid) {
+      assertThat(IpAddress.tryParse(value)).as(value).isNull();
+      assertThatThrownBy(() -> IpAddress.parse(value))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Test
+  public void testInvalid() {
+    assertThatThrownBy(() -> new CIDRUtils("10.0.0.0"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CIDRUtils("10.0.0.0/33"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
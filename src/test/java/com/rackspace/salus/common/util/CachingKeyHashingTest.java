@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.rackspace.salus.common.util.KeyHashing.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.junit.Test;
+
+public class CachingKeyHashingTest {
+
+  @Test
+  public void testHashMatchesUncached() {
+    final KeyHashing plain = new KeyHashing();
+    final CachingKeyHashing caching = new CachingKeyHashing(Algorithm.SHA256, 10);
+
+    assertThat(caching.hash("t-1", "r-1")).isEqualTo(plain.hash("t-1", "r-1"));
+    // second call is served from the cache
+    assertThat(caching.hash("t-1", "r-1")).isEqualTo(plain.hash("t-1", "r-1"));
+    assertThat(caching.hash("t-1", "r-2")).isEqualTo(plain.hash("t-1", "r-2"));
+  }
+
+  @Test
+  public void testCallerArrayReuse() {
+    final KeyHashing plain = new KeyHashing();
+    final CachingKeyHashing caching = new CachingKeyHashing(Algorithm.SHA256, 10);
+
+    final String[] values = {"t-1", "r-1"};
+    caching.hash(values);
+    values[1] = "r-2";
+
+    assertThat(caching.hash(values)).isEqualTo(plain.hash("t-1", "r-2"));
+    assertThat(caching.hash("t-1", "r-1")).isEqualTo(plain.hash("t-1", "r-1"));
+  }
+
+  @Test
+  public void testMetrics() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final KeyHashingProperties properties = new KeyHashingProperties();
+    final CachingKeyHashing caching = new CachingKeyHashing(properties, Optional.of(registry));
+
+    caching.hash("t-1", "r-1");
+    caching.hash("t-1", "r-1");
+    caching.hash("t-1", "r-1");
+
+    assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(2);
+    assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count())
+        .isEqualTo(1);
+  }
+}
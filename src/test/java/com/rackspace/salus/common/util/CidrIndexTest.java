@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class CidrIndexTest {
+
+  @Test
+  public void testLongestMatch() {
+    final CidrIndex<String> index = CidrIndex.<String>builder()
+        .add("10.0.0.0/8", "a")
+        .add("10.1.0.0/16", "b")
+        .add("10.1.2.0/24", "c")
+        .add("2001:db8::/32", "v6")
+        .build();
+
+    assertThat(index.size()).isEqualTo(4);
+    assertThat(index.longestMatch(IpAddress.parse("10.200.0.1")).getPayload()).isEqualTo("a");
+    assertThat(index.longestMatch(IpAddress.parse("10.1.200.1")).getPayload()).isEqualTo("b");
+    assertThat(index.longestMatch(IpAddress.parse("10.1.2.3")).getPayload()).isEqualTo("c");
+    assertThat(index.longestMatch(IpAddress.parse("2001:db8:1::1")).getPayload())
+        .isEqualTo("v6");
+    assertThat(index.longestMatch(IpAddress.parse("11.0.0.1"))).isNull();
+    assertThat(index.contains("2001:db9::1")).isFalse();
+  }
+
+  @Test
+  public void testDefaultRoutes() {
+    final CidrIndex<String> index = CidrIndex.ofCidrs(Arrays.asList("0.0.0.0/0", "::/0"));
+
+    assertThat(index.contains("255.255.255.255")).isTrue();
+    assertThat(index.contains("ffff::1")).isTrue();
+    assertThat(index.toBuilder().add("1.2.3.4/32", "host").build()
+        .longestMatch(IpAddress.parse("1.2.3.4")).getPayload()).isEqualTo("host");
+  }
+
+  @Test
+  public void testMatchesLinearScan() {
+    final Random random = new Random(0);
+    final List<CidrRange> ranges = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      ranges.add(CidrRange.of(IpAddress.ofIpv4(random.nextInt()), 8 + random.nextInt(25)));
+      ranges.add(CidrRange.of(
+          IpAddress.ofIpv6(random.nextLong(), random.nextLong()), 16 + random.nextInt(113)));
+    }
+    final CidrIndex.Builder<CidrRange> builder = CidrIndex.builder();
+    ranges.forEach(range -> builder.add(range, range));
+    final CidrIndex<CidrRange> index = builder.build();
+
+    for (int i = 0; i < 10_000; i++) {
+      final CidrRange source = ranges.get(random.nextInt(ranges.size()));
+      // half the probes land inside a known range
+      final IpAddress address = random.nextBoolean() ? source.getNetworkAddress() :
+          source.isIpv6() ? IpAddress.ofIpv6(random.nextLong(), random.nextLong())
+              : IpAddress.ofIpv4(random.nextInt());
+
+      final boolean expected = ranges.stream().anyMatch(range ->
+          range.isIpv6() == address.isIpv6() && range.contains(address));
+      assertThat(index.contains(address)).isEqualTo(expected);
+    }
+  }
+}
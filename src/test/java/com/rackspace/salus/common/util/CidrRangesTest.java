@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class CidrRangesTest {
+
+  @Test
+  public void testMerge() {
+    final List<CidrRange> merged = CidrRanges.merge(ranges(
+        "10.0.1.0/24", "10.0.0.0/24", "10.0.0.128/25", "10.0.2.0/24", "192.168.0.1/32",
+        "2001:db8::/33", "2001:db8:8000::/33"
+    ));
+
+    assertThat(merged).containsExactlyElementsOf(ranges(
+        "10.0.0.0/23", "10.0.2.0/24", "192.168.0.1/32", "2001:db8::/32"
+    ));
+  }
+
+  @Test
+  public void testMerge_entireSpace() {
+    assertThat(CidrRanges.merge(ranges("128.0.0.0/1", "0.0.0.0/1", "10.0.0.0/8")))
+        .containsExactlyElementsOf(ranges("0.0.0.0/0"));
+  }
+
+  @Test
+  public void testSubtract() {
+    final List<CidrRange> result = CidrRanges.subtract(
+        ranges("10.0.0.0/22", "2001:db8::/32"),
+        ranges("10.0.1.0/24", "10.0.3.255/32", "2001:db8::/33"));
+
+    assertThat(result).containsExactlyElementsOf(ranges(
+        "10.0.0.0/24", "10.0.2.0/24", "10.0.3.0/25", "10.0.3.128/26", "10.0.3.192/27",
+        "10.0.3.224/28", "10.0.3.240/29", "10.0.3.248/30", "10.0.3.252/31", "10.0.3.254/32",
+        "2001:db8:8000::/33"
+    ));
+  }
+
+  @Test
+  public void testAddresses() {
+    assertThat(CidrRanges.addresses(CidrRange.parse("10.0.0.0/30")).map(IpAddress::toString))
+        .containsExactly("10.0.0.0", "10.0.0.1", "10.0.0.2", "10.0.0.3");
+
+    // a /8 is streamed rather than collected
+    assertThat(CidrRanges.addresses(CidrRange.parse("10.0.0.0/8")).parallel().count())
+        .isEqualTo(1 << 24);
+    // the IPv6 space is too large to count, so just peek at the start
+    assertThat(CidrRanges.addresses(CidrRange.parse("::/0")).limit(2)
+        .map(IpAddress::toString).collect(Collectors.toList()))
+        .containsExactly("0:0:0:0:0:0:0:0", "0:0:0:0:0:0:0:1");
+  }
+
+  @Test
+  public void testSubnets() {
+    assertThat(CidrRanges.subnets(CidrRange.parse("10.0.0.0/22"), 24))
+        .containsExactlyElementsOf(ranges("10.0.0.0/24", "10.0.1.0/24", "10.0.2.0/24", "10.0.3.0/24"));
+    assertThat(CidrRanges.subnets(CidrRange.parse("2001:db8::/32"), 34).parallel()
+        .collect(Collectors.toList()))
+        .containsExactlyElementsOf(ranges(
+            "2001:db8::/34", "2001:db8:4000::/34", "2001:db8:8000::/34", "2001:db8:c000::/34"));
+
+    assertThatThrownBy(() -> CidrRanges.subnets(CidrRange.parse("10.0.0.0/22"), 21))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<CidrRange> ranges(String... cidrs) {
+    return Arrays.stream(cidrs).map(CidrRange::parse).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CidrTableTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndOpen() throws IOException {
+    final String list = "# threat list\n"
+        + "10.0.0.0/24 1\n"
+        + "10.0.1.0/24 1  # adjacent, so combined\n"
+        + "\n"
+        + "192.168.0.0/16 2\n"
+        + "2001:db8::/32 3\n"
+        + "172.16.0.0/12\n";
+    final Path path = temporaryFolder.newFile("list.cidr").toPath();
+    CidrTable.builder().read(new BufferedReader(new StringReader(list))).writeTo(path);
+
+    final CidrTable table = CidrTable.open(path);
+
+    assertThat(table.size()).isEqualTo(4);
+    assertThat(table.lookup(IpAddress.parse("10.0.0.0"), -1)).isEqualTo(1);
+    assertThat(table.lookup(IpAddress.parse("10.0.1.255"), -1)).isEqualTo(1);
+    assertThat(table.lookup(IpAddress.parse("10.0.2.0"), -1)).isEqualTo(-1);
+    assertThat(table.lookup(IpAddress.parse("192.168.7.7"), -1)).isEqualTo(2);
+    assertThat(table.lookup(IpAddress.parse("172.31.255.255"), -1)).isEqualTo(0);
+    assertThat(table.lookup(IpAddress.parse("2001:db8:ffff::1"), -1)).isEqualTo(3);
+    assertThat(table.contains(IpAddress.parse("2001:db9::"))).isFalse();
+    assertThat(table.contains(IpAddress.parse("9.255.255.255"))).isFalse();
+    assertThat(table.contains(IpAddress.parse("255.255.255.255"))).isFalse();
+  }
+
+  @Test
+  public void testEmpty() {
+    final CidrTable table = CidrTable.builder().build();
+
+    assertThat(table.size()).isZero();
+    assertThat(table.lookup(IpAddress.parse("10.0.0.1"), 5)).isEqualTo(5);
+  }
+
+  @Test
+  public void testConflictingOverlap() {
+    assertThatThrownBy(() ->
+        CidrTable.builder().add("10.0.0.0/8", 1).add("10.1.0.0/16", 2).build())
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testInvalidLine() {
+    assertThatThrownBy(() ->
+        CidrTable.builder().read(new BufferedReader(new StringReader("10.0.0.0/8\nbogus\n"))))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("line 2");
+  }
+
+  @Test
+  public void testCorrupt() {
+    assertThatThrownBy(() -> CidrTable.wrap(ByteBuffer.allocate(20)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testCorrupt_ipv4CountOverflows() {
+    // 1 << 30 entries of 12 bytes wrap around to an offset that matches the capacity
+    final ByteBuffer buffer = ByteBuffer.allocate(CidrTable.HEADER_SIZE)
+        .putInt(0, CidrTable.MAGIC)
+        .putInt(4, CidrTable.VERSION)
+        .putInt(8, 1 << 30)
+        .putInt(12, 0);
+
+    assertThatThrownBy(() -> CidrTable.wrap(buffer))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("truncated or corrupt");
+  }
+}
@@ -16,10 +16,18 @@
 
 package com.rackspace.salus.common.util;
 
+import com.google.common.hash.Hashing;
+import com.rackspace.salus.common.util.KeyHashing.Algorithm;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
 
 public class KeyHashingTest {
@@ -50,4 +58,119 @@ public class KeyHashingTest {
         assertThat(hashedValues, notNullValue());
         assertThat(hashedValues, equalTo(hashedValue));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void matchesJoinedStringHash() {
+        KeyHashing hashing = new KeyHashing();
+
+        String[][] inputs = {
+            {},
+            {""},
+            {"t-1", "r-1", "m-1"},
+            {"caf\u00e9", "\u65e5\u672c", "\ud83d\ude00"},
+            // lone surrogates are encoded as '?' by String.getBytes
+            {"bad\ud83d", "\ude00bad"},
+            {null, "null"},
+            {new String(new char[1000]).replace('\0', '\u20ac'), "long"}
+        };
+
+        for (String[] values : inputs) {
+            String expected = Hashing.sha256()
+                .hashString(String.join(":", values), StandardCharsets.UTF_8).toString();
+            assertThat(hashing.hash(values), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void byteOrientedVariants() {
+        KeyHashing hashing = new KeyHashing();
+        byte[] expected = Hashing.sha256()
+            .hashString("one:two:three", StandardCharsets.UTF_8).asBytes();
+
+        assertArrayEquals(expected, hashing.hashBytes("one", "two", "three"));
+
+        byte[] dest = new byte[expected.length + 2];
+        int written = hashing.hashInto(dest, 2, "one", "two", "three");
+        assertThat(written, equalTo(hashing.bits() / 8));
+        byte[] actual = new byte[expected.length];
+        System.arraycopy(dest, 2, actual, 0, actual.length);
+        assertArrayEquals(expected, actual);
+
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+        hashing.hashInto(buffer, "one", "two", "three");
+        assertArrayEquals(expected, buffer.array());
+        assertThat(buffer.remaining(), equalTo(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hashIntoTooSmall() {
+        new KeyHashing().hashInto(new byte[16], 0, "one");
+    }
+
+    @Test
+    public void hashIntoTooSmallLeavesNextHashIntact() {
+        KeyHashing hashing = new KeyHashing();
+        try {
+            hashing.hashInto(new byte[16], 0, "one");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertThat(hashing.hash("two"), equalTo(Hashing.sha256()
+            .hashString("two", StandardCharsets.UTF_8).toString()));
+    }
+
+    @Test
+    public void fastAlgorithmsAreTagged() {
+        KeyHashing murmur = new KeyHashing(Algorithm.MURMUR3_128);
+        KeyHashing sip = new KeyHashing(Algorithm.SIP_HASH_24);
+
+        assertThat(murmur.hash("one", "two"), equalTo("m3:" + Hashing.murmur3_128()
+            .hashString("one:two", StandardCharsets.UTF_8).toString()));
+        assertThat(sip.hash("one", "two"), equalTo("sip:" + Hashing.sipHash24()
+            .hashString("one:two", StandardCharsets.UTF_8).toString()));
+
+        assertThat(murmur.bits(), equalTo(128));
+        assertThat(sip.bits(), equalTo(64));
+        assertThat(murmur.hashBytes("one").length, equalTo(16));
+
+        assertThat(Algorithm.ofHash(murmur.hash("one")), equalTo(Algorithm.MURMUR3_128));
+        assertThat(Algorithm.ofHash(sip.hash("one")), equalTo(Algorithm.SIP_HASH_24));
+        assertThat(Algorithm.ofHash(new KeyHashing().hash("one")), equalTo(Algorithm.SHA256));
+    }
+
+    @Test
+    public void hashAllRetainsOrder() {
+        KeyHashing hashing = new KeyHashing();
+
+        for (int count : new int[]{3, KeyHashing.PARALLEL_THRESHOLD * 4}) {
+            List<String[]> values = new ArrayList<>();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                values.add(new String[]{"t-" + i, "r-" + i});
+                expected.add(hashing.hash("t-" + i, "r-" + i));
+            }
+
+            assertThat(hashing.hashAll(values), equalTo(expected));
+            assertThat(hashing.hashAll(values.stream()).collect(Collectors.toList()),
+                equalTo(expected));
+        }
+    }
+
+    @Test
+    public void hashAllStreamParallelOnlyWhenKnownLarge() {
+        KeyHashing hashing = new KeyHashing();
+        List<String[]> values = new ArrayList<>();
+        for (int i = 0; i < KeyHashing.PARALLEL_THRESHOLD; i++) {
+            values.add(new String[]{"t-" + i});
+        }
+
+        assertThat(hashing.hashAll(values.stream()).isParallel(), equalTo(true));
+        assertThat(hashing.hashAll(values.subList(0, 3).stream()).isParallel(), equalTo(false));
+        // unknown size
+        assertThat(hashing.hashAll(values.stream().filter(v -> true)).isParallel(),
+            equalTo(false));
+        assertThat(hashing.hashAll(values.subList(0, 3).parallelStream()).isParallel(),
+            equalTo(true));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_TENANT;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_ROLES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import lombok.Data;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(properties = {
+    "salus.common.web-security.stateless=true",
+    "salus.common.roles.role-to-view[ROLE_ANONYMOUS]=ADMIN",
+    "salus.common.roles.role-to-view[ROLE_MONITORING_ADMIN]=PUBLIC"
+})
+public class BackendServicesWebSecurityConfigTest {
+
+  @Configuration
+  @EnableRoleBasedJsonViews
+  @Import(TestController.class)
+  static class TestConfig {
+
+  }
+
+  @RestController
+  static class TestController {
+
+    @GetMapping("/api/test")
+    public TestResponse get() {
+      final TestResponse response = new TestResponse();
+      response.setPublicField("public");
+      response.setAdminField("admin");
+      return response;
+    }
+  }
+
+  @Data
+  static class TestResponse {
+
+    @JsonView(View.Public.class)
+    String publicField;
+
+    @JsonView(View.Admin.class)
+    String adminField;
+  }
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Test
+  public void testStateless_authenticated() throws Exception {
+    final MvcResult result = mockMvc.perform(get("/api/test")
+        .header(HEADER_X_ROLES, "monitoring:admin")
+        .header(HEADER_TENANT, "t-1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.publicField").value("public"))
+        .andExpect(jsonPath("$.adminField").doesNotExist())
+        .andReturn();
+
+    assertThat(result.getRequest().getSession(false)).isNull();
+  }
+
+  @Test
+  public void testStateless_unauthenticated() throws Exception {
+    final MvcResult result = mockMvc.perform(get("/api/test"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.publicField").value("public"))
+        .andExpect(jsonPath("$.adminField").value("admin"))
+        .andReturn();
+
+    assertThat(result.getRequest().getSession(false)).isNull();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.rackspace.salus.common.errors.ResponseMessages;
+import com.rackspace.salus.common.errors.RuntimeKafkaException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Compares building the error body of a Kafka outage response through the standard error
+ * attributes against {@link ExtendedErrorAttributes#buildErrorBody}. Run via the main method,
+ * such as from an IDE, since benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorBodyBenchmark {
+
+  private static final HttpStatus STATUS = HttpStatus.SERVICE_UNAVAILABLE;
+
+  private ExtendedErrorAttributes errorAttributes;
+  private MockHttpServletRequest request;
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(ErrorBodyBenchmark.class.getSimpleName())
+        .build()
+    ).run();
+  }
+
+  @Setup
+  public void setup() {
+    errorAttributes = new ExtendedErrorAttributes(false, "monitor-management", "host-1");
+    request = new MockHttpServletRequest("GET", "/api/tenant/t-1/monitors");
+    request.addHeader("x-b3-traceid", "463ac35c9f6413ad");
+    errorAttributes.resolveException(request, new MockHttpServletResponse(), null,
+        new RuntimeKafkaException(new IllegalStateException("broker unavailable")));
+  }
+
+  @Benchmark
+  public Map<String, Object> standardAttributes() {
+    // same as the standard path of AbstractRestExceptionHandler.respondWith
+    final Map<String, Object> body = errorAttributes
+        .getErrorAttributes(new ServletWebRequest(request), false);
+    final String traceId = request.getHeader("x-b3-traceid");
+    if (traceId != null) {
+      body.put("traceId", traceId);
+    }
+    body.put("status", STATUS.value());
+    body.put("error", STATUS.getReasonPhrase());
+    body.put("message", ResponseMessages.kafkaExceptionMessage);
+    return body;
+  }
+
+  @Benchmark
+  public Map<String, Object> buildErrorBody() {
+    return errorAttributes.buildErrorBody(request, STATUS,
+        ResponseMessages.kafkaExceptionMessage, request.getHeader("x-b3-traceid"));
+  }
+}
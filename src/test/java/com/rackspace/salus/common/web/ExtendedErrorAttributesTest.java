@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import javax.servlet.RequestDispatcher;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.validation.BindException;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class ExtendedErrorAttributesTest {
+
+  @Test
+  public void testBuildErrorBody_sameAsStandardAttributes() {
+    assertSameBody(false, HttpStatus.SERVICE_UNAVAILABLE, "Kafka is down", "abc123");
+    assertSameBody(true, HttpStatus.BAD_REQUEST, null, null);
+  }
+
+  @Test
+  public void testBuildErrorBody_noMessage() {
+    final ExtendedErrorAttributes errorAttributes = new ExtendedErrorAttributes(
+        false, "test-app", "test-host");
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+    errorAttributes.resolveException(
+        request, new MockHttpServletResponse(), null, new IllegalStateException());
+
+    final Map<String, Object> body = errorAttributes.buildErrorBody(
+        request, HttpStatus.INTERNAL_SERVER_ERROR, null, null);
+
+    assertThat(body).containsEntry("message", "No message available");
+  }
+
+  @Test
+  public void testBuildErrorBody_exceptionIncludedByDefault() {
+    final ExtendedErrorAttributes errorAttributes = new ExtendedErrorAttributes(
+        false, "test-app", "test-host");
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+    errorAttributes.resolveException(
+        request, new MockHttpServletResponse(), null, new IllegalStateException("bad state"));
+
+    final Map<String, Object> body = errorAttributes.buildErrorBody(
+        request, HttpStatus.INTERNAL_SERVER_ERROR, null, null);
+
+    assertThat(body).containsEntry("exception", IllegalStateException.class.getName());
+  }
+
+  @Test
+  public void testBuildErrorBody_fallbackForBindingResult() {
+    final ExtendedErrorAttributes errorAttributes = new ExtendedErrorAttributes(
+        false, "test-app", "test-host");
+    final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/test");
+    errorAttributes.resolveException(
+        request, new MockHttpServletResponse(), null, new BindException(new Object(), "target"));
+
+    assertThat(errorAttributes.buildErrorBody(request, HttpStatus.BAD_REQUEST, null, null))
+        .isNull();
+  }
+
+  @Test
+  public void testBuildErrorBody_fallbackForErrorDispatch() {
+    final ExtendedErrorAttributes errorAttributes = new ExtendedErrorAttributes(
+        false, "test-app", "test-host");
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/error");
+    request.setAttribute(RequestDispatcher.ERROR_STATUS_CODE, 500);
+    request.setAttribute(RequestDispatcher.ERROR_REQUEST_URI, "/api/test");
+
+    assertThat(errorAttributes.buildErrorBody(
+        request, HttpStatus.INTERNAL_SERVER_ERROR, null, null))
+        .isNull();
+  }
+
+  private static void assertSameBody(boolean includeException, HttpStatus status,
+                                     String message, String traceId) {
+    final ExtendedErrorAttributes errorAttributes = new ExtendedErrorAttributes(
+        includeException, "test-app", "test-host");
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+    errorAttributes.resolveException(request, new MockHttpServletResponse(), null,
+        new IllegalArgumentException("bad argument"));
+
+    // same as the standard path of AbstractRestExceptionHandler.respondWith
+    final Map<String, Object> expected = errorAttributes
+        .getErrorAttributes(new ServletWebRequest(request), false);
+    if (traceId != null) {
+      expected.put("traceId", traceId);
+    }
+    expected.put("status", status.value());
+    expected.put("error", status.getReasonPhrase());
+    if (message != null) {
+      expected.put("message", message);
+    }
+
+    final Map<String, Object> body = errorAttributes.buildErrorBody(
+        request, status, message, traceId);
+
+    assertThat(body).isNotNull();
+    assertThat(body.keySet()).containsExactlyElementsOf(expected.keySet());
+    expected.remove("timestamp");
+    body.remove("timestamp");
+    assertThat(body).isEqualTo(expected);
+  }
+}
@@ -19,14 +19,21 @@ package com.rackspace.salus.common.web;
 import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_TENANT;
 import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_IMPERSONATOR_ROLES;
 import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_ROLES;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.MetricTags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import org.hamcrest.core.StringStartsWith;
 import org.junit.Test;
@@ -132,4 +139,99 @@ public class PreAuthenticatedFilterTest {
 
     assertFalse(token.isPresent());
   }
+
+  @Test
+  public void testGetTokenTokenizing() {
+    PreAuthenticatedFilter preAuthenticatedFilter = new PreAuthenticatedFilter(HEADER_TENANT,
+        Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), true);
+
+    when(servletRequest.getHeader(HEADER_X_ROLES))
+        .thenReturn(" monitoring:admin ,, identity:user-admin,\tmonitoring:admin,");
+
+    when(servletRequest.getHeader(HEADER_X_IMPERSONATOR_ROLES))
+        .thenReturn("identity:user-admin");
+
+    when(servletRequest.getHeader(HEADER_TENANT))
+        .thenReturn("12345");
+
+    Optional<PreAuthenticatedToken> token = preAuthenticatedFilter.getToken(servletRequest);
+
+    assertTrue(token.isPresent());
+    assertThat(
+        token.get().getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.toList()),
+        containsInAnyOrder("ROLE_MONITORING_ADMIN", "ROLE_IDENTITY_USER_ADMIN"));
+
+    // repeat roles reuse the interned authority
+    Optional<PreAuthenticatedToken> again = preAuthenticatedFilter.getToken(servletRequest);
+    assertTrue(again.isPresent());
+    assertThat(again.get().getAuthorities().iterator().next(),
+        sameInstance(token.get().getAuthorities().iterator().next()));
+  }
+
+  @Test
+  public void testGetTokenCached() {
+    final WebSecurityProperties.TokenCache tokenCache = new WebSecurityProperties.TokenCache();
+    tokenCache.setEnabled(true);
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PreAuthenticatedFilter preAuthenticatedFilter = new ReposeHeaderFilter(true, tokenCache,
+        meterRegistry);
+
+    when(servletRequest.getHeader(HEADER_X_ROLES))
+        .thenReturn("monitoring:admin,identity:user-admin");
+
+    when(servletRequest.getHeader(HEADER_X_IMPERSONATOR_ROLES))
+        .thenReturn(null);
+
+    when(servletRequest.getHeader(HEADER_TENANT))
+        .thenReturn("12345", "67890");
+
+    Optional<PreAuthenticatedToken> first = preAuthenticatedFilter.getToken(servletRequest);
+    Optional<PreAuthenticatedToken> second = preAuthenticatedFilter.getToken(servletRequest);
+
+    assertTrue(first.isPresent());
+    assertTrue(second.isPresent());
+    assertThat(second.get().getPrincipal(), equalTo("67890"));
+    assertThat(second.get().getAuthorities(), equalTo(first.get().getAuthorities()));
+    assertThat(
+        meterRegistry.get("cache.gets")
+            .tag("cache", "pre_authenticated_roles")
+            .tag("result", "hit")
+            .functionCounter().count(),
+        equalTo(1.0));
+  }
+
+  @Test
+  public void testGetTokenMetrics() {
+    final WebSecurityProperties webSecurityProperties = new WebSecurityProperties();
+    webSecurityProperties.getMetrics().setTimerSamplingInterval(1);
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PreAuthenticatedFilter preAuthenticatedFilter = new ReposeHeaderFilter(true,
+        webSecurityProperties, meterRegistry);
+
+    // all outcomes are registered up front
+    assertThat(meterRegistry.get(MetricNames.PRE_AUTHENTICATED_REQUESTS).counters(), hasSize(3));
+
+    when(servletRequest.getHeader(HEADER_X_ROLES))
+        .thenReturn("monitoring:admin", "", "monitoring:admin");
+
+    when(servletRequest.getHeader(HEADER_TENANT))
+        .thenReturn("12345", "12345", null);
+
+    preAuthenticatedFilter.getToken(servletRequest);
+    preAuthenticatedFilter.getToken(servletRequest);
+    preAuthenticatedFilter.getToken(servletRequest);
+
+    for (String outcome : Arrays.asList("authenticated", "no_roles", "missing_tenant")) {
+      assertThat(
+          meterRegistry.get(MetricNames.PRE_AUTHENTICATED_REQUESTS)
+              .tag(MetricTags.OUTCOME_METRIC_TAG, outcome)
+              .counter().count(),
+          equalTo(1.0));
+    }
+    assertThat(
+        meterRegistry.get(MetricNames.PRE_AUTHENTICATED_RESOLVE_DURATION).timer().count(),
+        equalTo(3L));
+  }
 }
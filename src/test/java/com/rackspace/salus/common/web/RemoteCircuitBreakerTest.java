@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.rackspace.salus.common.web.RemoteCircuitBreaker.State;
+import com.rackspace.salus.common.web.RemoteServiceProperties.CircuitBreaker;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RemoteCircuitBreakerTest {
+
+  private static final long FAST = Duration.ofMillis(10).toNanos();
+  private static final long SLOW = Duration.ofSeconds(10).toNanos();
+
+  private final AtomicLong now = new AtomicLong();
+  private RemoteCircuitBreaker circuitBreaker;
+
+  @Before
+  public void setUp() {
+    final CircuitBreaker properties = new CircuitBreaker();
+    properties.setEnabled(true);
+    properties.setSlidingWindowSize(10);
+    properties.setMinimumNumberOfCalls(4);
+    properties.setFailureRateThreshold(50);
+    properties.setSlowCallRateThreshold(75);
+    properties.setSlowCallDuration(Duration.ofSeconds(1));
+    properties.setWaitDurationInOpenState(Duration.ofSeconds(30));
+    properties.setPermittedNumberOfCallsInHalfOpenState(2);
+    circuitBreaker = new RemoteCircuitBreaker("some-service", properties, now::get);
+  }
+
+  @Test
+  public void testOpensOnFailureRate() {
+    record(false, FAST);
+    record(true, FAST);
+    record(false, FAST);
+    // not yet the minimum number of calls
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+    record(true, FAST);
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+  }
+
+  @Test
+  public void testOpensOnSlowCallRate() {
+    record(false, SLOW);
+    record(false, SLOW);
+    record(false, FAST);
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+    record(false, SLOW);
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void testOnlyRecentCallsCount() {
+    for (int i = 0; i < 6; i++) {
+      record(false, FAST);
+    }
+    for (int i = 0; i < 4; i++) {
+      record(true, FAST);
+    }
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+    // evicts the oldest success, which leaves 5 of 10 failed
+    record(true, FAST);
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void testHalfOpenCloses() {
+    open();
+
+    now.addAndGet(Duration.ofSeconds(30).toNanos());
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    // only the permitted number of probing calls
+    assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+    circuitBreaker.onResult(FAST, false);
+    circuitBreaker.onResult(FAST, false);
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+  }
+
+  @Test
+  public void testHalfOpenReopens() {
+    open();
+
+    now.addAndGet(Duration.ofSeconds(30).toNanos());
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+
+    circuitBreaker.onResult(FAST, true);
+    circuitBreaker.onResult(FAST, false);
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      record(true, FAST);
+    }
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  private void record(boolean failed, long duration) {
+    assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    circuitBreaker.onResult(duration, failed);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.validation.BindValidationException;
+import org.springframework.mock.env.MockEnvironment;
+
+public class RemoteOperationsConfigTest {
+
+  @Test
+  public void testBindServiceProperties() {
+    final MockEnvironment environment = new MockEnvironment()
+        .withProperty("salus.remote.some-service.circuit-breaker.enabled", "true")
+        .withProperty("salus.remote.some-service.circuit-breaker.sliding-window-size", "50")
+        .withProperty("salus.remote.some-service.bulkhead.max-concurrent-calls", "10");
+
+    final Map<String, RemoteServiceProperties> services =
+        RemoteOperationsConfig.bindServiceProperties(environment);
+
+    assertThat(services).containsOnlyKeys("some-service");
+    assertThat(services.get("some-service").getCircuitBreaker().getSlidingWindowSize())
+        .isEqualTo(50);
+    assertThat(services.get("some-service").getBulkhead().getMaxConcurrentCalls())
+        .isEqualTo(10);
+  }
+
+  @Test
+  public void testBindServiceProperties_invalidValue() {
+    final MockEnvironment environment = new MockEnvironment()
+        .withProperty("salus.remote.some-service.bulkhead.max-concurrent-calls", "0");
+
+    assertThatThrownBy(() -> RemoteOperationsConfig.bindServiceProperties(environment))
+        .isInstanceOf(BindException.class)
+        .hasRootCauseInstanceOf(BindValidationException.class)
+        .hasStackTraceContaining("maxConcurrentCalls");
+  }
+
+  @Test
+  public void testBindServiceProperties_windowSmallerThanMinimumCalls() {
+    final MockEnvironment environment = new MockEnvironment()
+        .withProperty("salus.remote.some-service.circuit-breaker.sliding-window-size", "10");
+
+    // the default minimum number of calls is 20
+    assertThatThrownBy(() -> RemoteOperationsConfig.bindServiceProperties(environment))
+        .isInstanceOf(BindException.class)
+        .hasStackTraceContaining("minimumNumberOfCalls must not exceed slidingWindowSize");
+  }
+}
@@ -19,14 +19,41 @@ package com.rackspace.salus.common.web;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.MetricTags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
 import org.junit.Test;
+import org.slf4j.MDC;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 
 public class RemoteOperationsTest {
 
+  @After
+  public void tearDown() {
+    RemoteOperations.setAsyncExecutor(null);
+    RemoteOperations.setHedgingExecutor(null);
+    RemoteOperations.setServicePolicies(Map.of());
+    MDC.clear();
+    SecurityContextHolder.clearContext();
+  }
+
   @Test
   public void testMapRestClientExceptions_returnValue() {
     final String result = RemoteOperations.mapRestClientExceptions("some-service", () -> {
@@ -79,4 +106,390 @@ public class RemoteOperationsTest {
         .extracting("remoteServiceName", "statusCode")
         .containsExactly("some-service", HttpStatus.BAD_GATEWAY);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testMapRestClientExceptionsAsync_returnValue() {
+    final CompletableFuture<String> result =
+        RemoteOperations.mapRestClientExceptionsAsync("some-service", () -> "resulting value");
+
+    assertThat(RemoteOperations.join(result)).isEqualTo("resulting value");
+  }
+
+  @Test
+  public void testMapRestClientExceptionsAsync_callerContext() {
+    final PreAuthenticatedToken token = new PreAuthenticatedToken("t-1", List.of());
+    SecurityContextHolder.getContext().setAuthentication(token);
+    MDC.put("requestId", "r-1");
+
+    final CompletableFuture<String> requestId = RemoteOperations.mapRestClientExceptionsAsync(
+        "some-service", () -> MDC.get("requestId"));
+    final CompletableFuture<Authentication> authentication =
+        RemoteOperations.mapRestClientExceptionsAsync("some-service",
+            () -> SecurityContextHolder.getContext().getAuthentication());
+
+    assertThat(RemoteOperations.join(requestId)).isEqualTo("r-1");
+    assertThat(RemoteOperations.join(authentication)).isSameAs(token);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsAsync_httpStatusError() {
+    final CompletableFuture<Object> result = RemoteOperations.mapRestClientExceptionsAsync(
+        "some-service", () -> {
+          throw HttpClientErrorException
+              .create(HttpStatus.BAD_REQUEST, "bad request", HttpHeaders.EMPTY, null, null);
+        });
+
+    assertThatThrownBy(() -> RemoteOperations.join(result))
+        .isInstanceOf(RemoteServiceCallException.class)
+        .extracting("remoteServiceName", "statusCode")
+        .containsExactly("some-service", HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsAsync_rejected() {
+    RemoteOperations.setAsyncExecutor(runnable -> {
+      throw new RejectedExecutionException("full");
+    });
+
+    final CompletableFuture<String> result =
+        RemoteOperations.mapRestClientExceptionsAsync("some-service", () -> "not called");
+
+    assertThatThrownBy(() -> RemoteOperations.join(result))
+        .isInstanceOf(RemoteServiceCallException.class)
+        .hasMessageContaining("some-service")
+        .extracting("remoteServiceName", "statusCode", "attempted")
+        .containsExactly("some-service", HttpStatus.SERVICE_UNAVAILABLE, false);
+  }
+
+  @Test
+  public void testMapRestClientExceptions_bulkheadFull() {
+    final RemoteServiceProperties properties = new RemoteServiceProperties();
+    properties.getBulkhead().setEnabled(true);
+    properties.getBulkhead().setMaxConcurrentCalls(1);
+    RemoteOperations.setServicePolicies(
+        Map.of("some-service", new RemoteServicePolicy("some-service", properties)));
+
+    assertThatThrownBy(() -> {
+      RemoteOperations.mapRestClientExceptions("some-service", () ->
+          // a nested call stands in for a concurrent one
+          RemoteOperations.mapRestClientExceptions("some-service", () -> "not called"));
+    })
+        .isInstanceOf(RemoteServiceCallException.class)
+        .extracting("remoteServiceName", "statusCode", "attempted")
+        .containsExactly("some-service", HttpStatus.SERVICE_UNAVAILABLE, false);
+
+    // and the permit was released
+    assertThat(RemoteOperations.mapRestClientExceptions("some-service", () -> "called"))
+        .isEqualTo("called");
+  }
+
+  @Test
+  public void testMapRestClientExceptions_circuitBreakerOpen() {
+    final RemoteServiceProperties properties = new RemoteServiceProperties();
+    properties.getCircuitBreaker().setEnabled(true);
+    properties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+    RemoteOperations.setServicePolicies(
+        Map.of("some-service", new RemoteServicePolicy("some-service", properties)));
+
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(() -> {
+        RemoteOperations.mapRestClientExceptions("some-service", () -> {
+          throw new ResourceAccessException("connection refused");
+        });
+      })
+          .isInstanceOf(RemoteServiceCallException.class)
+          .extracting("statusCode")
+          .isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+
+    assertThatThrownBy(() -> {
+      RemoteOperations.mapRestClientExceptions("some-service", () -> "not called");
+    })
+        .isInstanceOf(RemoteServiceCallException.class)
+        .hasMessageContaining("circuit breaker is open")
+        .extracting("statusCode")
+        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+    // other services are unaffected
+    assertThat(RemoteOperations.mapRestClientExceptions("other-service", () -> "called"))
+        .isEqualTo("called");
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithRetries_transientFailure() {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RemoteOperations.setServicePolicies(Map.of("some-service", new RemoteServicePolicy(
+        "some-service", retryProperties(3, 10), meterRegistry)));
+    final AtomicInteger attempts = new AtomicInteger();
+
+    final String result = RemoteOperations.mapRestClientExceptionsWithRetries("some-service",
+        () -> {
+          if (attempts.incrementAndGet() < 3) {
+            throw HttpServerErrorException
+                .create(HttpStatus.SERVICE_UNAVAILABLE, "unavailable", HttpHeaders.EMPTY, null,
+                    null);
+          }
+          return "resulting value";
+        });
+
+    assertThat(result).isEqualTo("resulting value");
+    assertThat(attempts).hasValue(3);
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_RETRIES)
+        .tag(MetricTags.SERVICE_METRIC_TAG, "some-service")
+        .counter().count()).isEqualTo(2.0);
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_RETRY_OUTCOMES)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, "succeeded_after_retry")
+        .counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithRetries_notRetryable() {
+    final AtomicInteger attempts = new AtomicInteger();
+
+    assertThatThrownBy(() -> {
+      RemoteOperations.mapRestClientExceptionsWithRetries("some-service", () -> {
+        attempts.incrementAndGet();
+        throw HttpClientErrorException
+            .create(HttpStatus.NOT_FOUND, "not found", HttpHeaders.EMPTY, null, null);
+      });
+    })
+        .isInstanceOf(RemoteServiceCallException.class)
+        .extracting("statusCode")
+        .isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(attempts).hasValue(1);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithRetries_budgetExhausted() {
+    // the budget starts with 2 retries and gains nothing per call
+    final RemoteServiceProperties properties = retryProperties(5, 2);
+    properties.getRetry().setBudgetRatio(0);
+    RemoteOperations.setServicePolicies(
+        Map.of("some-service", new RemoteServicePolicy("some-service", properties)));
+    final AtomicInteger attempts = new AtomicInteger();
+
+    assertThatThrownBy(() -> {
+      RemoteOperations.mapRestClientExceptionsWithRetries("some-service", () -> {
+        attempts.incrementAndGet();
+        throw new ResourceAccessException("connection reset");
+      });
+    })
+        .isInstanceOf(RemoteServiceCallException.class)
+        .extracting("statusCode")
+        .isEqualTo(HttpStatus.BAD_GATEWAY);
+    assertThat(attempts).hasValue(3);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithHedging_slowAttempt() throws InterruptedException {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RemoteOperations.setServicePolicies(Map.of("some-service", new RemoteServicePolicy(
+        "some-service", hedgeProperties(Duration.ofMillis(10), 10), meterRegistry)));
+    final AtomicInteger attempts = new AtomicInteger();
+    final CountDownLatch neverReleased = new CountDownLatch(1);
+    final CountDownLatch cancelled = new CountDownLatch(1);
+
+    final String result = RemoteOperations.mapRestClientExceptionsWithHedging("some-service",
+        () -> {
+          if (attempts.incrementAndGet() == 1) {
+            try {
+              neverReleased.await();
+            } catch (InterruptedException e) {
+              cancelled.countDown();
+            }
+            return "first attempt";
+          }
+          return "hedged attempt";
+        });
+
+    assertThat(result).isEqualTo("hedged attempt");
+    assertThat(attempts).hasValue(2);
+    assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_HEDGES)
+        .tag(MetricTags.SERVICE_METRIC_TAG, "some-service")
+        .counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithHedging_fromFullAsyncPool() throws Exception {
+    // the only thread of the asynchronous pool is busy with the call that hedges
+    final RemoteOperationsProperties.Async async = new RemoteOperationsProperties.Async();
+    async.setPoolSize(1);
+    async.setQueueCapacity(1);
+    final ThreadPoolExecutor asyncExecutor = RemoteOperations.newAsyncExecutor(async);
+    RemoteOperations.setAsyncExecutor(asyncExecutor);
+    RemoteOperations.setServicePolicies(Map.of("some-service", new RemoteServicePolicy(
+        "some-service", hedgeProperties(Duration.ofMillis(10), 10))));
+    final AtomicInteger attempts = new AtomicInteger();
+    final CountDownLatch neverReleased = new CountDownLatch(1);
+
+    try {
+      final CompletableFuture<String> result = RemoteOperations.mapRestClientExceptionsAsync(
+          "some-service",
+          () -> RemoteOperations.mapRestClientExceptionsWithHedging("some-service", () -> {
+            if (attempts.incrementAndGet() == 1) {
+              try {
+                neverReleased.await();
+              } catch (InterruptedException e) {
+                // cancelled once the hedge completes
+              }
+              return "first attempt";
+            }
+            return "hedged attempt";
+          }));
+
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("hedged attempt");
+    } finally {
+      asyncExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithHedging_cancelledAttemptNotRecorded()
+      throws InterruptedException {
+    final ThreadPoolExecutor hedgingExecutor =
+        RemoteOperations.newHedgingExecutor(new RemoteOperationsProperties.Hedging());
+    RemoteOperations.setHedgingExecutor(hedgingExecutor);
+    final RemoteServiceProperties properties = hedgeProperties(Duration.ofMillis(10), 10);
+    properties.getCircuitBreaker().setEnabled(true);
+    properties.getCircuitBreaker().setSlidingWindowSize(10);
+    properties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+    final RemoteServicePolicy policy = new RemoteServicePolicy("some-service", properties);
+    RemoteOperations.setServicePolicies(Map.of("some-service", policy));
+    final AtomicInteger attempts = new AtomicInteger();
+    final CountDownLatch neverReleased = new CountDownLatch(1);
+
+    final String result = RemoteOperations.mapRestClientExceptionsWithHedging("some-service",
+        () -> {
+          if (attempts.incrementAndGet() == 1) {
+            try {
+              neverReleased.await();
+            } catch (InterruptedException e) {
+              // as a blocking client would when interrupted
+              throw new ResourceAccessException("interrupted");
+            }
+          }
+          return "hedged attempt";
+        });
+
+    assertThat(result).isEqualTo("hedged attempt");
+    // wait for the cancelled attempt to finish
+    hedgingExecutor.shutdown();
+    assertThat(hedgingExecutor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    // otherwise 1 of 2 calls failed, which opens the circuit
+    assertThat(policy.getCircuitBreaker().getState())
+        .isEqualTo(RemoteCircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithHedging_budgetExhausted() {
+    final RemoteServiceProperties properties = hedgeProperties(Duration.ofMillis(1), 0);
+    properties.getHedge().setBudgetRatio(0);
+    RemoteOperations.setServicePolicies(
+        Map.of("some-service", new RemoteServicePolicy("some-service", properties)));
+    final AtomicInteger attempts = new AtomicInteger();
+
+    final String result = RemoteOperations.mapRestClientExceptionsWithHedging("some-service",
+        () -> {
+          attempts.incrementAndGet();
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "resulting value";
+        });
+
+    assertThat(result).isEqualTo("resulting value");
+    assertThat(attempts).hasValue(1);
+  }
+
+  @Test
+  public void testMapRestClientExceptionsWithHedging_allAttemptsFail() {
+    RemoteOperations.setServicePolicies(Map.of("some-service", new RemoteServicePolicy(
+        "some-service", hedgeProperties(Duration.ofMillis(1), 10))));
+    final AtomicInteger attempts = new AtomicInteger();
+
+    assertThatThrownBy(() -> {
+      RemoteOperations.mapRestClientExceptionsWithHedging("some-service", () -> {
+        if (attempts.incrementAndGet() == 1) {
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        throw new ResourceAccessException("connection reset");
+      });
+    })
+        .isInstanceOf(RemoteServiceCallException.class)
+        .extracting("statusCode")
+        .isEqualTo(HttpStatus.BAD_GATEWAY);
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  public void testLatencyTracker_percentile() {
+    final RemoteServicePolicy.LatencyTracker latencies =
+        new RemoteServicePolicy.LatencyTracker(95);
+
+    for (int i = 1; i < RemoteServicePolicy.LatencyTracker.SAMPLES; i++) {
+      latencies.record(Duration.ofMillis(i).toNanos());
+    }
+    // not yet enough samples
+    assertThat(latencies.getPercentileNanos()).isEqualTo(-1);
+
+    latencies.record(Duration.ofMillis(RemoteServicePolicy.LatencyTracker.SAMPLES).toNanos());
+
+    assertThat(latencies.getPercentileNanos()).isEqualTo(Duration.ofMillis(244).toNanos());
+  }
+
+  @Test
+  public void testMapRestClientExceptions_timedByOutcome() {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final RemoteServiceProperties properties = new RemoteServiceProperties();
+    properties.getMetrics().setPercentiles(List.of(0.5, 0.99));
+    properties.getMetrics().setServiceLevelObjectives(List.of(Duration.ofMillis(100)));
+    RemoteOperations.setServicePolicies(Map.of("some-service",
+        new RemoteServicePolicy("some-service", properties, meterRegistry)));
+
+    // registered before any calls
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_DURATION)
+        .tag(MetricTags.SERVICE_METRIC_TAG, "some-service")
+        .timers()).hasSize(RemoteServicePolicy.CallOutcome.values().length);
+
+    RemoteOperations.mapRestClientExceptions("some-service", () -> "resulting value");
+    assertThatThrownBy(() -> {
+      RemoteOperations.mapRestClientExceptions("some-service", () -> {
+        throw HttpServerErrorException
+            .create(HttpStatus.INTERNAL_SERVER_ERROR, "oops", HttpHeaders.EMPTY, null, null);
+      });
+    })
+        .isInstanceOf(RemoteServiceCallException.class);
+
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_DURATION)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, "success")
+        .timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_DURATION)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, "server_error")
+        .timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get(MetricNames.REMOTE_OPERATION_DURATION)
+        .tag(MetricTags.OUTCOME_METRIC_TAG, "io_error")
+        .timer().count()).isEqualTo(0);
+  }
+
+  private static RemoteServiceProperties hedgeProperties(Duration delay, int budgetCapacity) {
+    final RemoteServiceProperties properties = new RemoteServiceProperties();
+    properties.getHedge().setDelay(delay);
+    properties.getHedge().setBudgetCapacity(budgetCapacity);
+    return properties;
+  }
+
+  private static RemoteServiceProperties retryProperties(int maxAttempts, int budgetCapacity) {
+    final RemoteServiceProperties properties = new RemoteServiceProperties();
+    properties.getRetry().setMaxAttempts(maxAttempts);
+    properties.getRetry().setBudgetCapacity(budgetCapacity);
+    properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+    return properties;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static com.rackspace.salus.common.web.RequestFailureLogSampler.SUPPRESS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.MetricTags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestFailureLogSamplerTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private RequestFailureLogSampler sampler;
+
+  @Before
+  public void setUp() {
+    sampler = new RequestFailureLogSampler(now::get);
+    sampler.setTracesPerInterval(2);
+    sampler.setInterval(Duration.ofSeconds(10));
+    sampler.setMeterRegistry(meterRegistry);
+  }
+
+  @Test
+  public void testSample_suppressedAfterLimit() {
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(0);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(0);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(SUPPRESS);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(SUPPRESS);
+
+    // other exception types and URIs are limited separately
+    assertThat(sampler.sample(IllegalArgumentException.class, "/api/a")).isEqualTo(0);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/b")).isEqualTo(0);
+
+    assertThat(
+        meterRegistry.get(MetricNames.SUPPRESSED_REQUEST_FAILURE_LOGS)
+            .tag(MetricTags.EXCEPTION_METRIC_TAG, "IllegalStateException")
+            .tag(MetricTags.URI_METRIC_TAG, "/api/a")
+            .counter().count())
+        .isEqualTo(2.0);
+  }
+
+  @Test
+  public void testSample_nextIntervalReportsSuppressed() {
+    for (int i = 0; i < 5; i++) {
+      sampler.sample(IllegalStateException.class, "/api/a");
+    }
+
+    now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(3);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(0);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(SUPPRESS);
+  }
+
+  @Test
+  public void testSample_disabled() {
+    sampler.setTracesPerInterval(0);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(sampler.sample(IllegalStateException.class, "/api/a")).isEqualTo(0);
+    }
+    assertThat(meterRegistry.find(MetricNames.SUPPRESSED_REQUEST_FAILURE_LOGS).counter())
+        .isNull();
+  }
+
+  @Test
+  public void testSample_boundedKeys() {
+    for (int i = 0; i < RequestFailureLogSampler.MAX_KEYS; i++) {
+      sampler.sample(IllegalStateException.class, "/api/" + i);
+    }
+
+    // beyond the limit, all share the overflow window
+    assertThat(sampler.sample(IllegalStateException.class, "/api/x")).isEqualTo(0);
+    assertThat(sampler.sample(IllegalArgumentException.class, "/api/y")).isEqualTo(0);
+    assertThat(sampler.sample(IllegalStateException.class, "/api/z")).isEqualTo(SUPPRESS);
+    assertThat(
+        meterRegistry.get(MetricNames.SUPPRESSED_REQUEST_FAILURE_LOGS)
+            .tag(MetricTags.URI_METRIC_TAG, RequestFailureLogSampler.OVERFLOW_TAG)
+            .counter().count())
+        .isEqualTo(1.0);
+  }
+}
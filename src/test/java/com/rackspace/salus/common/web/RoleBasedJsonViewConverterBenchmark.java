@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Compares the standard JSON converter against {@link RoleBasedJsonViewHttpMessageConverter}
+ * when writing a monitor-like listing with a serialization view. Run via the main method, such
+ * as from an IDE, since benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleBasedJsonViewConverterBenchmark {
+
+  @Param({"10", "1000"})
+  int listingSize;
+
+  @Param({"PUBLIC", "ADMIN"})
+  String viewName;
+
+  private MappingJackson2HttpMessageConverter standardConverter;
+  private RoleBasedJsonViewHttpMessageConverter viewConverter;
+  private List<Monitor> listing;
+  private Class<?> view;
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(RoleBasedJsonViewConverterBenchmark.class.getSimpleName())
+        .build()
+    ).run();
+  }
+
+  @Setup
+  public void setup() {
+    final ObjectMapper objectMapper = new ObjectMapper();
+    standardConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+    viewConverter = new RoleBasedJsonViewHttpMessageConverter(objectMapper);
+    view = View.getView(viewName);
+
+    listing = new ArrayList<>(listingSize);
+    for (int i = 0; i < listingSize; i++) {
+      listing.add(new Monitor(i));
+    }
+  }
+
+  @Benchmark
+  public byte[] standardConverter() throws IOException {
+    return write(standardConverter);
+  }
+
+  @Benchmark
+  public byte[] cachedViewWriters() throws IOException {
+    return write(viewConverter);
+  }
+
+  private byte[] write(MappingJackson2HttpMessageConverter converter) throws IOException {
+    // same as RoleBasedJsonViewControllerAdvice
+    final MappingJacksonValue value = new MappingJacksonValue(listing);
+    value.setSerializationView(view);
+
+    final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+    converter.write(value, List.class, MediaType.APPLICATION_JSON, outputMessage);
+    return outputMessage.getBodyAsBytes();
+  }
+
+  @SuppressWarnings("unused")
+  public static class Monitor {
+    @JsonView(View.Public.class)
+    public final String id;
+    @JsonView(View.Public.class)
+    public final String monitorName;
+    @JsonView(View.Public.class)
+    public final Map<String, String> labelSelector;
+    @JsonView(View.Public.class)
+    public final String content;
+    @JsonView(View.Internal.class)
+    public final String tenantId;
+    @JsonView(View.Admin.class)
+    public final String agentType;
+
+    Monitor(int index) {
+      id = "monitor-" + index;
+      monitorName = "ping " + index;
+      labelSelector = Map.of("agent_discovered_os", "linux", "env", "prod");
+      content = "{\"type\":\"ping\",\"target\":\"10.0.0." + (index % 256) + "\"}";
+      tenantId = "t-" + (index % 7);
+      agentType = "TELEGRAF";
+    }
+  }
+}
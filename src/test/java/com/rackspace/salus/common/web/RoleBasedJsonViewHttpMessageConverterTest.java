@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.rackspace.salus.common.web.View.ViewName;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+public class RoleBasedJsonViewHttpMessageConverterTest {
+
+  // same as the object mapper of spring boot, which excludes fields without a view
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private final MappingJackson2HttpMessageConverter standardConverter =
+      new MappingJackson2HttpMessageConverter(objectMapper);
+
+  private final RoleBasedJsonViewHttpMessageConverter viewConverter =
+      new RoleBasedJsonViewHttpMessageConverter(objectMapper);
+
+  @Test
+  public void testWrite_eachView() throws IOException {
+    for (ViewName viewName : ViewName.values()) {
+      final byte[] expected = write(standardConverter, withView(new Monitor(), viewName),
+          Monitor.class, MediaType.APPLICATION_JSON);
+      final byte[] actual = write(viewConverter, withView(new Monitor(), viewName),
+          Monitor.class, MediaType.APPLICATION_JSON);
+
+      assertThat(actual).as(viewName.name()).isEqualTo(expected);
+    }
+
+    assertThat(new String(write(viewConverter, withView(new Monitor(), ViewName.PUBLIC),
+        Monitor.class, MediaType.APPLICATION_JSON), StandardCharsets.UTF_8))
+        .contains("\"id\"")
+        .doesNotContain("\"tenantId\"")
+        .doesNotContain("\"agentType\"");
+  }
+
+  @Test
+  public void testWrite_collections() throws IOException {
+    final Type listType = new ParameterizedTypeReference<List<Monitor>>() {}.getType();
+    final Type setType = new ParameterizedTypeReference<Set<Monitor>>() {}.getType();
+
+    for (ViewName viewName : ViewName.values()) {
+      final List<Monitor> listing = List.of(new Monitor(), new Monitor());
+      assertThat(write(viewConverter, withView(listing, viewName), listType,
+          MediaType.APPLICATION_JSON))
+          .as(viewName.name())
+          .isEqualTo(write(standardConverter, withView(listing, viewName), listType,
+              MediaType.APPLICATION_JSON));
+
+      final Set<Monitor> monitors = Set.of(new Monitor());
+      assertThat(write(viewConverter, withView(monitors, viewName), setType,
+          MediaType.APPLICATION_JSON))
+          .as(viewName.name())
+          .isEqualTo(write(standardConverter, withView(monitors, viewName), setType,
+              MediaType.APPLICATION_JSON));
+    }
+  }
+
+  @Test
+  public void testWrite_filtersUseStandardConverter() throws IOException {
+    final MappingJacksonValue value = withView(new FilteredMonitor(), ViewName.ADMIN);
+    value.setFilters(new SimpleFilterProvider()
+        .addFilter("monitor", SimpleBeanPropertyFilter.serializeAllExcept("tenantId")));
+
+    final byte[] actual = write(viewConverter, value, FilteredMonitor.class,
+        MediaType.APPLICATION_JSON);
+
+    assertThat(actual).isEqualTo(write(standardConverter, value, FilteredMonitor.class,
+        MediaType.APPLICATION_JSON));
+    assertThat(new String(actual, StandardCharsets.UTF_8))
+        .contains("\"agentType\"")
+        .doesNotContain("\"tenantId\"");
+  }
+
+  @Test
+  public void testWrite_serverSentEventsUseStandardConverter() throws IOException {
+    // the standard converter only writes events differently when indenting
+    final ObjectMapper indentingMapper = Jackson2ObjectMapperBuilder.json()
+        .indentOutput(true)
+        .build();
+    final byte[] expected = write(new MappingJackson2HttpMessageConverter(indentingMapper),
+        withView(new Monitor(), ViewName.ADMIN), Monitor.class, MediaType.TEXT_EVENT_STREAM);
+    final byte[] actual = write(new RoleBasedJsonViewHttpMessageConverter(indentingMapper),
+        withView(new Monitor(), ViewName.ADMIN), Monitor.class, MediaType.TEXT_EVENT_STREAM);
+
+    assertThat(actual).isEqualTo(expected);
+    assertThat(new String(actual, StandardCharsets.UTF_8)).contains("\ndata:");
+  }
+
+  @Test
+  public void testWrite_noViewUsesStandardConverter() throws IOException {
+    assertThat(write(viewConverter, new Monitor(), Monitor.class, MediaType.APPLICATION_JSON))
+        .isEqualTo(write(standardConverter, new Monitor(), Monitor.class,
+            MediaType.APPLICATION_JSON));
+
+    final MappingJacksonValue value = new MappingJacksonValue(new Monitor());
+    assertThat(write(viewConverter, value, Monitor.class, MediaType.APPLICATION_JSON))
+        .isEqualTo(write(standardConverter, value, Monitor.class, MediaType.APPLICATION_JSON));
+  }
+
+  private static MappingJacksonValue withView(Object value, ViewName viewName) {
+    // same as RoleBasedJsonViewControllerAdvice
+    final MappingJacksonValue container = new MappingJacksonValue(value);
+    container.setSerializationView(View.getView(viewName));
+    return container;
+  }
+
+  private static byte[] write(MappingJackson2HttpMessageConverter converter, Object value,
+      Type type, MediaType contentType) throws IOException {
+    final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+    converter.write(value, type, contentType, outputMessage);
+    return outputMessage.getBodyAsBytes();
+  }
+
+  @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+  public static class Monitor {
+    @JsonView(View.Public.class)
+    public String id = "monitor-1";
+    @JsonView(View.Internal.class)
+    public String tenantId = "t-1";
+    @JsonView(View.Admin.class)
+    public String agentType = "TELEGRAF";
+    public String unviewed = "unviewed";
+  }
+
+  @JsonFilter("monitor")
+  public static class FilteredMonitor extends Monitor {
+
+  }
+}
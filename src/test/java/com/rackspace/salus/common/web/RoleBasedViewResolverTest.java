@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.rackspace.salus.common.config.RoleProperties;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+public class RoleBasedViewResolverTest {
+
+  private final RoleBasedViewResolver resolver = new RoleBasedViewResolver(roleProperties());
+
+  @Test
+  public void testResolve_greatestAccess() {
+    final List<SimpleGrantedAuthority> authorities = List.of(
+        new SimpleGrantedAuthority("ROLE_CUSTOMER"),
+        new SimpleGrantedAuthority("ROLE_EMPLOYEE"),
+        new SimpleGrantedAuthority("ROLE_OTHER"));
+
+    assertThat(resolver.resolve(authorities)).isEqualTo(View.Internal.class);
+    // and again once memoized
+    assertThat(resolver.resolve(List.copyOf(authorities))).isEqualTo(View.Internal.class);
+  }
+
+  @Test
+  public void testResolve_noViews() {
+    final List<SimpleGrantedAuthority> authorities = List.of(
+        new SimpleGrantedAuthority("ROLE_OTHER"));
+
+    assertThat(resolver.resolve(authorities)).isNull();
+    assertThat(resolver.resolve(authorities)).isNull();
+  }
+
+  @Test
+  public void testResolve_unknownViewIgnored() {
+    assertThat(resolver.resolve(List.of(new SimpleGrantedAuthority("ROLE_TYPO")))).isNull();
+  }
+
+  private static RoleProperties roleProperties() {
+    final RoleProperties roleProperties = new RoleProperties();
+    roleProperties.setRoleToView(Map.of(
+        "ROLE_CUSTOMER", "PUBLIC",
+        "ROLE_EMPLOYEE", "INTERNAL",
+        "ROLE_ANONYMOUS", "ADMIN",
+        "ROLE_TYPO", "ADMINN"
+    ));
+    return roleProperties;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.rackspace.salus.common.web.View.ViewName;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ViewTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testGetView() {
+    assertThat(View.getView(ViewName.PUBLIC)).isEqualTo(View.Public.class);
+    assertThat(View.getView("INTERNAL")).isEqualTo(View.Internal.class);
+    assertThat(View.getView("admin")).isEqualTo(View.Admin.class);
+    assertThat(View.findView("Admin")).contains(View.Admin.class);
+  }
+
+  @Test
+  public void testGetView_unknown() {
+    assertThat(View.getView("ADMINN")).isNull();
+    assertThat(View.getView((String) null)).isNull();
+    assertThat(View.getView("")).isNull();
+    assertThat(View.findView("ADMINN")).isEmpty();
+  }
+
+  @Test
+  public void testGetView_noExceptionsCreated() throws Exception {
+    // initialize the class outside of the recording
+    View.getView("PUBLIC");
+
+    final Path recordingFile = tempFolder.newFile("exceptions.jfr").toPath();
+    try (Recording recording = new Recording()) {
+      // records the construction of every Throwable, whether or not it is thrown
+      recording.enable("jdk.JavaExceptionThrow").withStackTrace();
+      recording.start();
+      for (int i = 0; i < 1_000; i++) {
+        View.getView("ADMINN");
+        View.getView((String) null);
+        View.findView("not-a-view");
+        View.getView("public");
+      }
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    final List<RecordedEvent> fromView = RecordingFile.readAllEvents(recordingFile).stream()
+        .filter(event -> event.getStackTrace() != null)
+        .filter(event -> event.getStackTrace().getFrames().stream()
+            .map(RecordedFrame::getMethod)
+            .anyMatch(method -> method.getType().getName().startsWith(View.class.getName())))
+        .collect(Collectors.toList());
+    assertThat(fromView).isEmpty();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_TENANT;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_IMPERSONATOR_ROLES;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_ROLES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.rackspace.salus.common.web.PreAuthenticatedToken;
+import com.rackspace.salus.common.web.PreAuthenticatedTokenResolver;
+import java.util.Arrays;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+
+public class PreAuthenticatedServerSecurityContextRepositoryTest {
+
+  private final PreAuthenticatedServerSecurityContextRepository repository =
+      new PreAuthenticatedServerSecurityContextRepository(new PreAuthenticatedTokenResolver(
+          HEADER_TENANT, Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), true));
+
+  @Test
+  public void testLoad() {
+    final MockServerWebExchange exchange = MockServerWebExchange.from(
+        MockServerHttpRequest.get("/api/monitors")
+            .header(HEADER_TENANT, "12345")
+            .header(HEADER_X_ROLES, "monitoring:admin,identity:user-admin")
+            .header(HEADER_X_IMPERSONATOR_ROLES, "salus:admin")
+    );
+
+    final SecurityContext context = repository.load(exchange).block();
+
+    assertThat(context).isNotNull();
+    final Authentication authentication = context.getAuthentication();
+    assertThat(authentication).isInstanceOf(PreAuthenticatedToken.class);
+    assertThat(authentication.getPrincipal()).isEqualTo("12345");
+    assertThat(authentication.getAuthorities())
+        .extracting(GrantedAuthority::getAuthority)
+        .containsExactlyInAnyOrder(
+            "ROLE_MONITORING_ADMIN", "ROLE_IDENTITY_USER_ADMIN", "ROLE_SALUS_ADMIN");
+  }
+
+  @Test
+  public void testLoad_missingTenant() {
+    final MockServerWebExchange exchange = MockServerWebExchange.from(
+        MockServerHttpRequest.get("/api/monitors")
+            .header(HEADER_X_ROLES, "monitoring:admin")
+    );
+
+    assertThat(repository.load(exchange).block()).isNull();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Rackspace US, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rackspace.salus.common.web.reactive;
+
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_TENANT;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_IMPERSONATOR_ROLES;
+import static com.rackspace.salus.common.web.ReposeHeaderFilter.HEADER_X_ROLES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rackspace.salus.common.config.MetricNames;
+import com.rackspace.salus.common.config.RoleProperties;
+import com.rackspace.salus.common.web.PreAuthenticatedTokenResolver;
+import com.rackspace.salus.common.web.RoleBasedViewResolver;
+import com.rackspace.salus.common.web.View;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2CodecSupport;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+
+public class RoleBasedJackson2JsonEncoderTest {
+
+  private static final ResolvableType TYPE = ResolvableType.forClass(Object.class);
+
+  private final RoleBasedJackson2JsonEncoder encoder = new RoleBasedJackson2JsonEncoder(
+      new ObjectMapper(),
+      new PreAuthenticatedTokenResolver(
+          HEADER_TENANT, Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), false),
+      new RoleBasedViewResolver(roleProperties()));
+
+  @Test
+  public void testGetEncodeHints_viewOfRoles() {
+    final Map<String, Object> hints = getEncodeHints(MockServerHttpRequest.get("/api/monitors")
+        .header(HEADER_TENANT, "12345")
+        .header(HEADER_X_ROLES, "monitoring:admin")
+        .header(HEADER_X_IMPERSONATOR_ROLES, "salus:admin")
+        .build());
+
+    // the view with the greatest access of the roles
+    assertThat(hints).containsEntry(Jackson2CodecSupport.JSON_VIEW_HINT, View.Internal.class);
+  }
+
+  @Test
+  public void testGetEncodeHints_anonymous() {
+    final Map<String, Object> hints = getEncodeHints(
+        MockServerHttpRequest.get("/api/monitors").build());
+
+    assertThat(hints).containsEntry(Jackson2CodecSupport.JSON_VIEW_HINT, View.Admin.class);
+  }
+
+  @Test
+  public void testGetEncodeHints_unknownRoles() {
+    final MockServerHttpRequest request = MockServerHttpRequest.get("/api/monitors")
+        .header(HEADER_TENANT, "12345")
+        .header(HEADER_X_ROLES, "identity:user-admin")
+        .build();
+
+    assertThatThrownBy(() -> getEncodeHints(request))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("ROLE_IDENTITY_USER_ADMIN");
+  }
+
+  @Test
+  public void testGetEncodeHints_notCountedAgain() {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final PreAuthenticatedTokenResolver tokenResolver = new PreAuthenticatedTokenResolver(
+        HEADER_TENANT, Arrays.asList(HEADER_X_ROLES, HEADER_X_IMPERSONATOR_ROLES), false,
+        null, 1, meterRegistry);
+    final RoleBasedJackson2JsonEncoder encoder = new RoleBasedJackson2JsonEncoder(
+        new ObjectMapper(), tokenResolver, new RoleBasedViewResolver(roleProperties()));
+
+    final Map<String, Object> hints = encoder.getEncodeHints(TYPE, TYPE,
+        MediaType.APPLICATION_JSON,
+        MockServerHttpRequest.get("/api/monitors")
+            .header(HEADER_TENANT, "12345")
+            .header(HEADER_X_ROLES, "monitoring:admin")
+            .build(),
+        new MockServerHttpResponse());
+
+    assertThat(hints).containsEntry(Jackson2CodecSupport.JSON_VIEW_HINT, View.Public.class);
+    // the security context repository already counted and timed the request
+    assertThat(meterRegistry.get(MetricNames.PRE_AUTHENTICATED_REQUESTS).counters())
+        .extracting(Counter::count)
+        .containsOnly(0.0);
+    assertThat(meterRegistry.get(MetricNames.PRE_AUTHENTICATED_RESOLVE_DURATION).timer().count())
+        .isZero();
+  }
+
+  private Map<String, Object> getEncodeHints(MockServerHttpRequest request) {
+    return encoder.getEncodeHints(TYPE, TYPE, MediaType.APPLICATION_JSON, request,
+        new MockServerHttpResponse());
+  }
+
+  private static RoleProperties roleProperties() {
+    final RoleProperties roleProperties = new RoleProperties();
+    roleProperties.setRoleToView(Map.of(
+        "ROLE_MONITORING_ADMIN", "PUBLIC",
+        "ROLE_SALUS_ADMIN", "INTERNAL",
+        "ROLE_ANONYMOUS", "ADMIN"
+    ));
+    return roleProperties;
+  }
+}